@@ -0,0 +1,93 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Submits one task per worker thread, and has each worker claim chunks of consecutive files from a shared atomic
+ * index until all files have been claimed, so that the cost of creating and queueing a task per file is not part
+ * of the measured read cost.
+ */
+public class BatchedReadEngine implements ReadEngine {
+    /** The maximum number of files claimed by a worker at a time. */
+    private static final int MAX_CHUNK_SIZE = 64;
+
+    /** The minimum number of chunks per worker, so that the load is still balanced at the end of the list. */
+    private static final int MIN_CHUNKS_PER_WORKER = 8;
+
+    /** The executor. */
+    private final ExecutorService executor;
+
+    /** The number of workers to submit -- should be the number of threads in the executor. */
+    private final int numWorkers;
+
+    /** The label. */
+    private final String label;
+
+    /**
+     * Constructor.
+     *
+     * @param executor
+     *            The executor.
+     * @param numWorkers
+     *            The number of workers to submit -- should be the number of threads in the executor.
+     * @param label
+     *            The label.
+     */
+    public BatchedReadEngine(final ExecutorService executor, final int numWorkers, final String label) {
+        this.executor = executor;
+        this.numWorkers = numWorkers;
+        this.label = label;
+    }
+
+    @Override
+    public String label() {
+        return label;
+    }
+
+    @Override
+    public int numThreads() {
+        return numWorkers;
+    }
+
+    @Override
+    public long readAll(final List<File> files, final ReadStrategy strategy) {
+        final int numFiles = files.size();
+        final int chunkSize = Math.max(1,
+                Math.min(MAX_CHUNK_SIZE, numFiles / (numWorkers * MIN_CHUNKS_PER_WORKER)));
+        final AtomicInteger nextFileIdx = new AtomicInteger();
+        final List<Future<Long>> futures = new ArrayList<>(numWorkers);
+        for (int i = 0; i < numWorkers; i++) {
+            futures.add(executor.submit(() -> {
+                long workerBytesRead = 0L;
+                for (int start; (start = nextFileIdx.getAndAdd(chunkSize)) < numFiles;) {
+                    final int end = Math.min(start + chunkSize, numFiles);
+                    for (int j = start; j < end; j++) {
+                        try {
+                            workerBytesRead += strategy.read(files.get(j));
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                }
+                return workerBytesRead;
+            }));
+        }
+        long totBytesRead = 0L;
+        for (final Future<Long> future : futures) {
+            // Barrier
+            try {
+                totBytesRead += future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+        return totBytesRead;
+    }
+}
@@ -0,0 +1,373 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The command line options of {@link FileReadingBenchmark}, in the form {@code --name=value}, optionally read from a
+ * properties file of {@code name=value} lines given by {@code --config=FILE}.
+ */
+final class BenchmarkOptions {
+    /**
+     * The total number of bytes in each dataset -- should be around 2x RAM size to prevent caching (and you need
+     * this much free disk space), or use {@code --cache=cold}.
+     */
+    long totalBytes = 102_400_000L;
+
+    /** The number of files in the first (smallest) dataset of the sweep. */
+    int minFiles = 100;
+
+    /** The maximum number of files in the last (largest) dataset of the sweep. */
+    int maxFiles = 102_400;
+
+    /** The factor by which the number of files increases with each step of the sweep. */
+    double stepFactor = 2.0;
+
+    /** The distributions of the file sizes of the datasets -- the sweep is run for each distribution. */
+    List<SizeDistribution> sizeDistributions = Collections.singletonList(SizeDistribution.UNIFORM);
+
+    /** The number of files in each subdirectory of a dataset. */
+    int filesPerDir = Dataset.DEFAULT_FILES_PER_DIR;
+
+    /** The directory to create the datasets in, or null for the system temporary directory. */
+    File dataDir;
+
+    /**
+     * The directory to keep persistent datasets in, which are reused across runs, or null to create a temporary
+     * dataset for each step of the sweep.
+     */
+    File fixtureDir;
+
+    /** The number of threads in each thread pool. */
+    int[] threadCounts = defaultThreadCounts(Runtime.getRuntime().availableProcessors());
+
+    /** The number of unmeasured warmup passes per cell. */
+    int warmupPasses = 1;
+
+    /** The number of measured passes per cell. */
+    int measuredPasses = 5;
+
+    /** The CSV file to write results to, or null. */
+    File csvFile;
+
+    /** The JSON lines file to write results to, or null. */
+    File jsonFile;
+
+    /** If true, measure each cell with the dataset in the page cache. */
+    boolean warmCache = true;
+
+    /** If true, measure each cell with the dataset evicted from the page cache before each pass. */
+    boolean coldCache;
+
+    /** The number of carrier threads of the virtual thread scheduler, or 0 for the JDK default. */
+    int carrierParallelism;
+
+    /**
+     * The maximum number of carrier threads, including the carriers added to compensate for blocked (pinned)
+     * carriers, or 0 for the JDK default.
+     */
+    int maxCarriers;
+
+    /** The usage message. */
+    static final String USAGE = "Usage: java -jar filereadingbenchmark.jar [options]\n" //
+            + "Options:\n" //
+            + "  --config=FILE     Read options from a properties file of name=value lines (e.g.\n" //
+            + "                    total-bytes=10g); options on the command line take precedence\n" //
+            + "  --total-bytes=N   Total size of each dataset, with an optional k, m or g suffix for\n" //
+            + "                    multiples of 1024 (default: 102400000)\n" //
+            + "  --min-files=N     Number of files in the first dataset of the sweep (default: 100)\n" //
+            + "  --max-files=N     Max number of files in the last dataset of the sweep (default: 102400)\n" //
+            + "  --step=F          Factor by which the number of files grows per step (default: 2)\n" //
+            + "  --sizes=D,D,...   Comma-separated file size distributions to run the sweep for: uniform\n" //
+            + "                    (default), lognormal, pareto or classfile (mostly 1-4KB, with a long\n" //
+            + "                    tail), each scaled to the total size of the dataset\n" //
+            + "  --files-per-dir=N Number of files in each subdirectory of a dataset (default: 1000)\n" //
+            + "  --dir=DIR         Directory to create the datasets in (default: the system temp dir)\n" //
+            + "  --fixture=DIR     Keep the datasets in DIR, with a manifest of seeds and checksums, and\n" //
+            + "                    reuse them across runs, regenerating only missing or invalid files\n" //
+            + "  --threads=N,N,... Comma-separated thread pool sizes (default: powers of two, up to\n" //
+            + "                    2x the number of cores)\n" //
+            + "  --warmup=N        Number of unmeasured warmup passes per cell (default: 1)\n" //
+            + "  --trials=N        Number of measured passes per cell (default: 5)\n" //
+            + "  --csv=FILE        Write a CSV record per measured pass to FILE\n" //
+            + "  --json=FILE       Write a JSON lines record per measured pass to FILE\n" //
+            + "  --cache=MODE      warm: read files from the page cache (default); cold: evict files from\n" //
+            + "                    the page cache before each pass; both: run each cell in both modes\n" //
+            + "  --carriers=N      Number of virtual thread carrier threads (default: number of cores)\n" //
+            + "  --max-carriers=N  Max number of carrier threads, including compensating threads added\n" //
+            + "                    when carriers block on file I/O (default: max(carriers, 256))\n";
+
+    /**
+     * Parse the command line options. Options given in a {@code --config} properties file are applied first, so that
+     * options given on the command line take precedence.
+     *
+     * @param args
+     *            The command line arguments.
+     * @return The parsed options.
+     * @throws IllegalArgumentException
+     *             If an argument is not a valid option, or the properties file could not be read.
+     */
+    static BenchmarkOptions parse(final String[] args) {
+        final BenchmarkOptions options = new BenchmarkOptions();
+        final List<String[]> namesAndValues = new ArrayList<>();
+        for (final String arg : args) {
+            final int eqIdx = arg.indexOf('=');
+            if (!arg.startsWith("--") || eqIdx < 0) {
+                throw new IllegalArgumentException("Invalid option: " + arg);
+            }
+            final String name = arg.substring(2, eqIdx);
+            final String value = arg.substring(eqIdx + 1);
+            if (name.equals("config")) {
+                options.applyConfig(new File(value));
+            } else {
+                namesAndValues.add(new String[] { name, value });
+            }
+        }
+        for (final String[] nameAndValue : namesAndValues) {
+            options.apply(nameAndValue[0], nameAndValue[1]);
+        }
+        if (options.minFiles > options.maxFiles) {
+            throw new IllegalArgumentException("--min-files must not be greater than --max-files");
+        }
+        if ((options.totalBytes + options.minFiles - 1) / options.minFiles > SizeDistribution.MAX_FILE_SIZE) {
+            throw new IllegalArgumentException(
+                    "Files must be smaller than 2GB -- increase --min-files or decrease --total-bytes");
+        }
+        return options;
+    }
+
+    /**
+     * Apply the options in a properties file.
+     *
+     * @param configFile
+     *            The properties file, with one {@code name=value} line per option.
+     * @throws IllegalArgumentException
+     *             If the file could not be read, or it contains an invalid option.
+     */
+    private void applyConfig(final File configFile) {
+        final Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(configFile.toPath(), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Could not read config file " + configFile + ": " + e);
+        }
+        for (final String name : properties.stringPropertyNames()) {
+            if (name.equals("config")) {
+                throw new IllegalArgumentException("Config file " + configFile + " cannot contain config option");
+            }
+            apply(name, properties.getProperty(name).trim());
+        }
+    }
+
+    /**
+     * Apply an option.
+     *
+     * @param name
+     *            The option name, without the leading {@code --}.
+     * @param value
+     *            The option value.
+     * @throws IllegalArgumentException
+     *             If the option name is unknown, or the value is invalid.
+     */
+    private void apply(final String name, final String value) {
+        switch (name) {
+        case "total-bytes":
+            totalBytes = parseSize(name, value);
+            break;
+        case "min-files":
+            minFiles = parsePositiveInt(name, value);
+            break;
+        case "max-files":
+            maxFiles = parsePositiveInt(name, value);
+            break;
+        case "step":
+            stepFactor = parseDouble(name, value);
+            if (!(stepFactor > 1.0)) {
+                throw new IllegalArgumentException("Value for --" + name + " must be greater than 1: " + value);
+            }
+            break;
+        case "sizes":
+            sizeDistributions = new ArrayList<>();
+            for (final String label : value.split(",")) {
+                sizeDistributions.add(SizeDistribution.forLabel(label.trim()));
+            }
+            break;
+        case "files-per-dir":
+            filesPerDir = parsePositiveInt(name, value);
+            break;
+        case "dir":
+            dataDir = new File(value);
+            if (!dataDir.isDirectory()) {
+                throw new IllegalArgumentException("Not a directory: " + value);
+            }
+            break;
+        case "fixture":
+            fixtureDir = new File(value);
+            break;
+        case "threads":
+            final String[] parts = value.split(",");
+            threadCounts = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                threadCounts[i] = parsePositiveInt(name, parts[i].trim());
+            }
+            break;
+        case "warmup":
+            warmupPasses = parseInt(name, value, 0);
+            break;
+        case "trials":
+            measuredPasses = parsePositiveInt(name, value);
+            break;
+        case "csv":
+            csvFile = new File(value);
+            break;
+        case "json":
+            jsonFile = new File(value);
+            break;
+        case "cache":
+            warmCache = value.equals("warm") || value.equals("both");
+            coldCache = value.equals("cold") || value.equals("both");
+            if (!warmCache && !coldCache) {
+                throw new IllegalArgumentException("Invalid value for --" + name + ": " + value);
+            }
+            break;
+        case "carriers":
+            carrierParallelism = parsePositiveInt(name, value);
+            break;
+        case "max-carriers":
+            maxCarriers = parsePositiveInt(name, value);
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown option: --" + name);
+        }
+    }
+
+    /**
+     * Get the number of files in each dataset of the sweep: {@link #minFiles}, then multiplied by
+     * {@link #stepFactor} (rounded, and increasing by at least one file) at each step, up to {@link #maxFiles}.
+     *
+     * @return The number of files in each dataset.
+     */
+    int[] numFilesSweep() {
+        final List<Integer> numFilesSweep = new ArrayList<>();
+        for (long numFiles = minFiles; numFiles <= maxFiles;
+                numFiles = Math.max(numFiles + 1, Math.round(numFiles * stepFactor))) {
+            numFilesSweep.add((int) numFiles);
+        }
+        return numFilesSweep.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Get the default thread pool sizes: powers of two, up to twice the number of cores. The last size is twice
+     * the number of cores, even if that is not a power of two.
+     *
+     * @param numCores
+     *            The number of cores.
+     * @return The thread pool sizes.
+     */
+    static int[] defaultThreadCounts(final int numCores) {
+        final int maxThreads = 2 * numCores;
+        final List<Integer> threadCounts = new ArrayList<>();
+        for (int numThreads = 1; numThreads < maxThreads; numThreads *= 2) {
+            threadCounts.add(numThreads);
+        }
+        threadCounts.add(maxThreads);
+        return threadCounts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Parse a positive integer option value.
+     *
+     * @param name
+     *            The option name.
+     * @param value
+     *            The option value.
+     * @return The parsed value.
+     * @throws IllegalArgumentException
+     *             If the value is not a positive integer.
+     */
+    private static int parsePositiveInt(final String name, final String value) {
+        return parseInt(name, value, 1);
+    }
+
+    /**
+     * Parse a size option value, with an optional {@code k}, {@code m} or {@code g} suffix (case insensitive) for
+     * multiples of 1024.
+     *
+     * @param name
+     *            The option name.
+     * @param value
+     *            The option value.
+     * @return The parsed value, in bytes.
+     * @throws IllegalArgumentException
+     *             If the value is not a positive size.
+     */
+    private static long parseSize(final String name, final String value) {
+        final String lowerValue = value.toLowerCase();
+        final int suffixIdx = "kmg".indexOf(lowerValue.isEmpty() ? ' ' : lowerValue.charAt(lowerValue.length() - 1));
+        final String digits = suffixIdx < 0 ? lowerValue : lowerValue.substring(0, lowerValue.length() - 1);
+        final long multiplier = suffixIdx < 0 ? 1L : 1L << (10 * (suffixIdx + 1));
+        final long longValue;
+        try {
+            longValue = Long.parseLong(digits);
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for --" + name + ": " + value);
+        }
+        if (longValue < 1L || longValue > Long.MAX_VALUE / multiplier) {
+            throw new IllegalArgumentException("Value for --" + name + " is out of range: " + value);
+        }
+        return longValue * multiplier;
+    }
+
+    /**
+     * Parse a floating point option value.
+     *
+     * @param name
+     *            The option name.
+     * @param value
+     *            The option value.
+     * @return The parsed value.
+     * @throws IllegalArgumentException
+     *             If the value is not a number.
+     */
+    private static double parseDouble(final String name, final String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for --" + name + ": " + value);
+        }
+    }
+
+    /**
+     * Parse an integer option value.
+     *
+     * @param name
+     *            The option name.
+     * @param value
+     *            The option value.
+     * @param minValue
+     *            The minimum valid value.
+     * @return The parsed value.
+     * @throws IllegalArgumentException
+     *             If the value is not an integer, or is less than the minimum valid value.
+     */
+    private static int parseInt(final String name, final String value, final int minValue) {
+        final int intValue;
+        try {
+            intValue = Integer.parseInt(value);
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for --" + name + ": " + value);
+        }
+        if (intValue < minValue) {
+            throw new IllegalArgumentException(
+                    "Value for --" + name + " must be at least " + minValue + ": " + value);
+        }
+        return intValue;
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A region of a byte array. Returned in place of a trimmed copy of an oversized buffer, so that the caller can
+ * consume the bytes directly, without copying them or boxing their length.
+ */
+public final class BufferSlice {
+    /** The backing array. */
+    private final byte[] array;
+
+    /** The offset of the first byte of the slice within the backing array. */
+    private final int offset;
+
+    /** The number of bytes in the slice. */
+    private final int length;
+
+    /**
+     * Constructor.
+     *
+     * @param array
+     *            The backing array.
+     * @param offset
+     *            The offset of the first byte of the slice within the backing array.
+     * @param length
+     *            The number of bytes in the slice.
+     */
+    public BufferSlice(final byte[] array, final int offset, final int length) {
+        if (offset < 0 || length < 0 || offset > array.length - length) {
+            throw new IndexOutOfBoundsException(
+                    "offset " + offset + ", length " + length + ", array length " + array.length);
+        }
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Get the backing array. Only the bytes in the range [{@link #offset()}, {@link #offset()} + {@link #length()})
+     * belong to the slice.
+     *
+     * @return The backing array.
+     */
+    public byte[] array() {
+        return array;
+    }
+
+    /**
+     * Get the offset of the first byte of the slice within the backing array.
+     *
+     * @return The offset.
+     */
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * Get the number of bytes in the slice.
+     *
+     * @return The length.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Wrap the slice in a {@link ByteBuffer} view, without copying.
+     *
+     * @return A {@link ByteBuffer} whose position is zero and whose limit is the length of the slice.
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(array, offset, length).slice();
+    }
+
+    /**
+     * Get the slice as an array of exactly the right size. Only copies the bytes if the slice does not span the
+     * whole backing array.
+     *
+     * @return The bytes in the slice.
+     */
+    public byte[] toByteArray() {
+        return offset == 0 && length == array.length ? array : Arrays.copyOfRange(array, offset, offset + length);
+    }
+}
@@ -0,0 +1,389 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/** The measured passes of one benchmark cell: one read strategy, with one engine, on one dataset. */
+public class CellResult {
+    /**
+     * The minimum mean duration of a pass, in clock ticks, for the CPU times that are only as precise as the clock
+     * tick to be reported: each thread's times are rounded to whole ticks, so shorter passes would mostly report
+     * rounding noise.
+     */
+    static final int MIN_TICKS_PER_PASS = 20;
+
+    /**
+     * The minimum fraction of the bytes read by a cold cache pass that must have been fetched from storage. If less
+     * was fetched, the files were not evicted from the page cache (e.g. because their pages were still mapped, or
+     * because the filesystem keeps files in memory), and the pass was not cold.
+     */
+    static final double MIN_COLD_STORAGE_READ_FRACTION = 0.9;
+
+    /** The read strategy. */
+    public final ReadStrategy strategy;
+
+    /** The engine. */
+    public final ReadEngine engine;
+
+    /** The mean file size of the dataset, rounded up (the size of each file, for a uniform distribution). */
+    public final int fileSize;
+
+    /** The distribution of the file sizes of the dataset. */
+    public final SizeDistribution sizeDistribution;
+
+    /** The number of files in the dataset. */
+    public final int numFiles;
+
+    /** If true, the dataset was evicted from the page cache before each pass. */
+    public final boolean coldCache;
+
+    /** The elapsed time of each measured pass, in nanoseconds. */
+    public final long[] elapsedNanos;
+
+    /** The number of bytes read by each measured pass. */
+    public final long[] bytesRead;
+
+    /** The per-file read latency histogram of each measured pass. */
+    public final LatencyHistogram.Snapshot[] latencies;
+
+    /** The per-file read latencies of all measured passes. */
+    public final LatencyHistogram.Snapshot mergedLatencies = new LatencyHistogram.Snapshot();
+
+    /** The JVM resources used by each measured pass. */
+    public final ResourceUsage[] resourceUsage;
+
+    /** The statistics of the elapsed times, once all passes have been recorded. */
+    private TrialStatistics stats;
+
+    /**
+     * Constructor.
+     *
+     * @param strategy
+     *            The read strategy.
+     * @param engine
+     *            The engine.
+     * @param fileSize
+     *            The mean file size of the dataset, rounded up.
+     * @param sizeDistribution
+     *            The distribution of the file sizes of the dataset.
+     * @param numFiles
+     *            The number of files in the dataset.
+     * @param coldCache
+     *            If true, the dataset was evicted from the page cache before each pass.
+     * @param numPasses
+     *            The number of measured passes.
+     */
+    public CellResult(final ReadStrategy strategy, final ReadEngine engine, final int fileSize,
+            final SizeDistribution sizeDistribution, final int numFiles, final boolean coldCache,
+            final int numPasses) {
+        this.strategy = strategy;
+        this.engine = engine;
+        this.fileSize = fileSize;
+        this.sizeDistribution = sizeDistribution;
+        this.numFiles = numFiles;
+        this.coldCache = coldCache;
+        this.elapsedNanos = new long[numPasses];
+        this.bytesRead = new long[numPasses];
+        this.latencies = new LatencyHistogram.Snapshot[numPasses];
+        this.resourceUsage = new ResourceUsage[numPasses];
+    }
+
+    /**
+     * Record a measured pass.
+     *
+     * @param pass
+     *            The index of the measured pass.
+     * @param passElapsedNanos
+     *            The elapsed time, in nanoseconds.
+     * @param passBytesRead
+     *            The number of bytes read.
+     * @param passLatencies
+     *            The per-file read latencies.
+     * @param passResourceUsage
+     *            The JVM resources used.
+     */
+    public void recordPass(final int pass, final long passElapsedNanos, final long passBytesRead,
+            final LatencyHistogram.Snapshot passLatencies, final ResourceUsage passResourceUsage) {
+        elapsedNanos[pass] = passElapsedNanos;
+        bytesRead[pass] = passBytesRead;
+        latencies[pass] = passLatencies;
+        mergedLatencies.add(passLatencies);
+        resourceUsage[pass] = passResourceUsage;
+        stats = null;
+    }
+
+    /**
+     * Get the label of the page cache mode.
+     *
+     * @return "cold" if the dataset was evicted from the page cache before each pass, otherwise "warm".
+     */
+    public String cacheLabel() {
+        return coldCache ? "cold" : "warm";
+    }
+
+    /**
+     * Check that every measured pass of a cold cache cell fetched the files from storage, i.e. that eviction worked.
+     *
+     * @return False if this is a cold cache cell, and a pass fetched less than
+     *         {@link #MIN_COLD_STORAGE_READ_FRACTION} of the bytes it read from storage; true if this is a warm
+     *         cache cell, or if the bytes fetched from storage are unknown.
+     */
+    public boolean isColdCacheVerified() {
+        if (coldCache) {
+            for (int pass = 0; pass < resourceUsage.length; pass++) {
+                final long storageReadBytes = resourceUsage[pass].storageReadBytes;
+                if (storageReadBytes >= 0L && storageReadBytes < MIN_COLD_STORAGE_READ_FRACTION * bytesRead[pass]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the statistics of the elapsed times of the measured passes.
+     *
+     * @return The statistics, in seconds.
+     */
+    public TrialStatistics stats() {
+        if (stats == null) {
+            final double[] elapsedSecs = new double[elapsedNanos.length];
+            for (int pass = 0; pass < elapsedNanos.length; pass++) {
+                elapsedSecs[pass] = elapsedNanos[pass] * 1e-9;
+            }
+            stats = new TrialStatistics(elapsedSecs);
+        }
+        return stats;
+    }
+
+    /**
+     * Get the mean throughput of the measured passes.
+     *
+     * @return The throughput, in megabytes (10^6 bytes) per second.
+     */
+    public double megabytesPerSec() {
+        return meanBytesReadPerPass() / stats().mean * 1e-6;
+    }
+
+    /**
+     * Get the mean number of bytes read per measured pass.
+     *
+     * @return The bytes read per pass.
+     */
+    private double meanBytesReadPerPass() {
+        long totBytesRead = 0L;
+        for (final long passBytesRead : bytesRead) {
+            totBytesRead += passBytesRead;
+        }
+        return totBytesRead / (double) bytesRead.length;
+    }
+
+    /**
+     * Get the mean number of files read per second by the measured passes.
+     *
+     * @return The files per second.
+     */
+    public double filesPerSec() {
+        return numFiles / stats().mean;
+    }
+
+    /**
+     * Get the mean value of a resource usage counter over the measured passes.
+     *
+     * @param counter
+     *            The counter.
+     * @return The mean value per pass, or -1 if the counter is unknown.
+     */
+    private double meanPerPass(final ToLongFunction<ResourceUsage> counter) {
+        long total = 0L;
+        for (final ResourceUsage passResourceUsage : resourceUsage) {
+            final long value = counter.applyAsLong(passResourceUsage);
+            if (value < 0L) {
+                return -1.0;
+            }
+            total += value;
+        }
+        return total / (double) resourceUsage.length;
+    }
+
+    /**
+     * Get the mean number of bytes allocated on the heap per file read by the measured passes.
+     *
+     * @return The bytes allocated per file, or -1 if allocation counting is not supported by this JVM.
+     */
+    public double allocatedBytesPerFile() {
+        final double allocatedBytesPerPass = meanPerPass(usage -> usage.allocatedBytes);
+        return allocatedBytesPerPass < 0.0 ? -1.0 : allocatedBytesPerPass / numFiles;
+    }
+
+    /**
+     * Get the mean number of garbage collection pauses per measured pass.
+     *
+     * @return The number of garbage collection pauses per pass.
+     */
+    public double gcPausesPerPass() {
+        return meanPerPass(usage -> usage.gcPauses);
+    }
+
+    /**
+     * Get the mean garbage collection pause time per measured pass.
+     *
+     * @return The garbage collection pause time per pass, in milliseconds.
+     */
+    public double gcPauseMillisPerPass() {
+        return meanPerPass(usage -> usage.gcPauseMillis);
+    }
+
+    /**
+     * Check whether the measured passes were long enough for the CPU times that are only as precise as the clock
+     * tick to be reported.
+     *
+     * @return True if the mean pass lasted at least {@link #MIN_TICKS_PER_PASS} clock ticks.
+     */
+    private boolean cpuTicksResolved() {
+        return stats().mean * 1e9 >= MIN_TICKS_PER_PASS * ProcStat.NANOS_PER_CLOCK_TICK;
+    }
+
+    /**
+     * Get the mean CPU time of the worker threads per measured pass.
+     *
+     * @return The CPU time per pass in seconds, or -1 if thread CPU time measurement is not supported.
+     */
+    public double cpuSecsPerPass() {
+        final double cpuNanos = meanPerPass(usage -> usage.cpuNanos);
+        return cpuNanos < 0.0 ? -1.0 : cpuNanos * 1e-9;
+    }
+
+    /**
+     * Get the mean CPU time spent in user mode by the worker threads per measured pass.
+     *
+     * @return The user CPU time per pass in seconds, or -1 if unknown, or if the passes were too short to resolve
+     *         it.
+     */
+    public double userCpuSecsPerPass() {
+        final double userCpuNanos = meanPerPass(usage -> usage.userCpuNanos);
+        return userCpuNanos < 0.0 || !cpuTicksResolved() ? -1.0 : userCpuNanos * 1e-9;
+    }
+
+    /**
+     * Get the mean CPU time spent in kernel mode by the worker threads per measured pass.
+     *
+     * @return The system CPU time per pass in seconds, or -1 if unknown, or if the passes were too short to
+     *         resolve it.
+     */
+    public double systemCpuSecsPerPass() {
+        final double systemCpuNanos = meanPerPass(usage -> usage.systemCpuNanos);
+        return systemCpuNanos < 0.0 || !cpuTicksResolved() ? -1.0 : systemCpuNanos * 1e-9;
+    }
+
+    /**
+     * Get the ratio of the CPU time used by the whole process to the wall time, over the measured passes, i.e. the
+     * mean number of cores kept busy. A ratio well below the number of threads indicates that the threads spent
+     * most of their time blocked (e.g. waiting for I/O).
+     *
+     * @return The ratio, or -1 if the process CPU time is unknown, or if the passes were too short to resolve it.
+     */
+    public double processCpuPerWallTime() {
+        final double processCpuNanos = meanPerPass(usage -> usage.processUserNanos < 0L ? -1L
+                : usage.processUserNanos + usage.processSystemNanos);
+        return processCpuNanos < 0.0 || !cpuTicksResolved() ? -1.0 : processCpuNanos * 1e-9 / stats().mean;
+    }
+
+    /**
+     * Get the number of page faults (minor and major) per megabyte read by the measured passes.
+     *
+     * @return The page faults per megabyte (10^6 bytes), or -1 if unknown.
+     */
+    public double pageFaultsPerMegabyte() {
+        final double faultsPerPass = meanPerPass(
+                usage -> usage.minorFaults < 0L ? -1L : usage.minorFaults + usage.majorFaults);
+        return faultsPerPass < 0.0 ? -1.0 : faultsPerPass / (meanBytesReadPerPass() * 1e-6);
+    }
+
+    /**
+     * Get the number of major page faults per megabyte read by the measured passes.
+     *
+     * @return The major page faults per megabyte (10^6 bytes), or -1 if unknown.
+     */
+    public double majorFaultsPerMegabyte() {
+        final double majorFaultsPerPass = meanPerPass(usage -> usage.majorFaults);
+        return majorFaultsPerPass < 0.0 ? -1.0 : majorFaultsPerPass / (meanBytesReadPerPass() * 1e-6);
+    }
+
+    /**
+     * Get the number of read syscalls per file read by the measured passes.
+     *
+     * @return The read syscalls per file, or -1 if unknown.
+     */
+    public double readSyscallsPerFile() {
+        final double readSyscallsPerPass = meanPerPass(usage -> usage.readSyscalls);
+        return readSyscallsPerPass < 0.0 ? -1.0 : readSyscallsPerPass / numFiles;
+    }
+
+    /**
+     * Get the number of megabytes fetched from storage (rather than the page cache) per measured pass.
+     *
+     * @return The megabytes (10^6 bytes) fetched per pass, or -1 if unknown.
+     */
+    public double storageReadMegabytesPerPass() {
+        final double storageReadBytesPerPass = meanPerPass(usage -> usage.storageReadBytes);
+        return storageReadBytesPerPass < 0.0 ? -1.0 : storageReadBytesPerPass * 1e-6;
+    }
+
+    /**
+     * Get a {@link ResultWriter} record for each measured pass.
+     *
+     * @param environment
+     *            The environment metadata to add to each record.
+     * @return The records.
+     */
+    public List<Map<String, Object>> toRecords(final Map<String, Object> environment) {
+        final List<Map<String, Object>> records = new ArrayList<>(elapsedNanos.length);
+        for (int pass = 0; pass < elapsedNanos.length; pass++) {
+            final Map<String, Object> record = new LinkedHashMap<>();
+            record.put("strategy", strategy.name());
+            record.put("engine", engine.label());
+            record.put("threads", engine.numThreads());
+            record.put("fileSize", fileSize);
+            record.put("numFiles", numFiles);
+            record.put("sizes", sizeDistribution.label());
+            record.put("cache", cacheLabel());
+            record.put("trial", pass);
+            record.put("wallNanos", elapsedNanos[pass]);
+            record.put("bytesRead", bytesRead[pass]);
+            record.put("latencyP50Nanos", latencies[pass].valueAtPercentile(50.0));
+            record.put("latencyP99Nanos", latencies[pass].valueAtPercentile(99.0));
+            record.put("latencyP999Nanos", latencies[pass].valueAtPercentile(99.9));
+            record.put("latencyMaxNanos", latencies[pass].maxValue());
+            record.put("allocatedBytes", resourceUsage[pass].allocatedBytes);
+            record.put("gcPauses", resourceUsage[pass].gcPauses);
+            record.put("gcPauseMillis", resourceUsage[pass].gcPauseMillis);
+            record.put("cpuNanos", resourceUsage[pass].cpuNanos);
+            record.put("userCpuNanos", resourceUsage[pass].userCpuNanos);
+            record.put("systemCpuNanos", resourceUsage[pass].systemCpuNanos);
+            record.put("processUserNanos", resourceUsage[pass].processUserNanos);
+            record.put("processSystemNanos", resourceUsage[pass].processSystemNanos);
+            record.put("minorFaults", resourceUsage[pass].minorFaults);
+            record.put("majorFaults", resourceUsage[pass].majorFaults);
+            record.put("readSyscalls", resourceUsage[pass].readSyscalls);
+            record.put("storageReadBytes", resourceUsage[pass].storageReadBytes);
+            record.putAll(environment);
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * Get the speedup of this cell relative to a baseline cell.
+     *
+     * @param baseline
+     *            The baseline cell.
+     * @return The ratio of the baseline cell's mean elapsed time to this cell's mean elapsed time.
+     */
+    public double speedupOver(final CellResult baseline) {
+        return baseline.stats().mean / stats().mean;
+    }
+}
@@ -0,0 +1,178 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Compares two results files written with {@code --csv} or {@code --json} (e.g. before and after a JDK upgrade),
+ * reporting the change in mean wall time of each cell that is present in both files. Exits with status 1 if any
+ * cell regressed, i.e. if its mean wall time increased by more than the threshold, and the increase is significant
+ * according to Welch's t-test. A cell with fewer than two samples in either file (e.g. a run with
+ * {@code --trials=1}) cannot be tested, so it is judged by the threshold alone, and a warning is printed to stderr.
+ *
+ * <p>
+ * The dataset cleanup records have a single sample per dataset, and the time taken to delete a dataset varies by
+ * tens of percent between identical runs, so a slower cleanup is reported, but does not count as a regression,
+ * unless {@code --gate-cleanup} is given.
+ */
+public class CompareResults {
+    /** The fields that identify a benchmark cell. */
+    private static final List<String> KEY_COLUMNS = Arrays.asList("strategy", "engine", "fileSize", "numFiles",
+            "cache", "sizes");
+
+    /** The usage message. */
+    private static final String USAGE = "Usage: java -cp filereadingbenchmark.jar "
+            + CompareResults.class.getName() + " [options] BASELINE CURRENT\n" //
+            + "Options:\n" //
+            + "  --threshold=PCT   Min increase in mean wall time that counts as a regression (default: 5)\n" //
+            + "  --alpha=P         Max p-value for an increase to be significant (default: 0.05)\n" //
+            + "  --gate-cleanup    Count slower dataset cleanups as regressions (single samples, so noisy)\n";
+
+    /**
+     * Read the wall times of each cell in a results file.
+     *
+     * @param file
+     *            The results file.
+     * @return The wall times in seconds, keyed by cell, in file order.
+     * @throws IOException
+     *             If the file could not be read.
+     */
+    private static Map<List<String>, List<Double>> readWallTimes(final File file) throws IOException {
+        final Map<List<String>, List<Double>> wallTimes = new LinkedHashMap<>();
+        for (final Map<String, String> record : ResultReader.read(file)) {
+            final String wallNanos = record.get("wallNanos");
+            if (wallNanos == null) {
+                continue;
+            }
+            final List<String> key = new ArrayList<>(KEY_COLUMNS.size());
+            for (final String column : KEY_COLUMNS) {
+                key.add(record.get(column));
+            }
+            if (key.get(4) == null) {
+                // Written before cold-cache mode was added
+                key.set(4, "warm");
+            }
+            if (key.get(5) == null) {
+                // Written before size distributions were added
+                key.set(5, SizeDistribution.UNIFORM.label());
+            }
+            try {
+                wallTimes.computeIfAbsent(key, k -> new ArrayList<>()).add(Long.parseLong(wallNanos) * 1e-9);
+            } catch (final NumberFormatException e) {
+                throw new IOException(file + ": invalid wallNanos value: " + wallNanos);
+            }
+        }
+        return wallTimes;
+    }
+
+    private static TrialStatistics stats(final List<Double> samples) {
+        return new TrialStatistics(samples.stream().mapToDouble(Double::doubleValue).toArray());
+    }
+
+    public static void main(String[] args) {
+        double thresholdPercent = 5.0;
+        double alpha = 0.05;
+        boolean gateCleanup = false;
+        List<File> files = new ArrayList<>();
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--threshold=")) {
+                    thresholdPercent = Double.parseDouble(arg.substring("--threshold=".length()));
+                } else if (arg.startsWith("--alpha=")) {
+                    alpha = Double.parseDouble(arg.substring("--alpha=".length()));
+                } else if (arg.equals("--gate-cleanup")) {
+                    gateCleanup = true;
+                } else if (arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                } else {
+                    files.add(new File(arg));
+                }
+            }
+            if (files.size() != 2) {
+                throw new IllegalArgumentException("Expected two results files");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        Map<List<String>, List<Double>> baseline;
+        Map<List<String>, List<Double>> current;
+        try {
+            baseline = readWallTimes(files.get(0));
+            current = readWallTimes(files.get(1));
+        } catch (IOException e) {
+            System.err.println("Could not read results: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        System.out.println("Baseline: " + files.get(0) + ", current: " + files.get(1) + " (threshold "
+                + thresholdPercent + "%, alpha " + alpha + ")");
+        System.out.println(
+                "Filesize\tNumFiles\tSizes\tStrategy\tEngine\tCache\tBaseline\tCurrent\tDelta%\tP-value\tVerdict");
+        int numCompared = 0;
+        int numRegressions = 0;
+        int numImprovements = 0;
+        int numUntestable = 0;
+        int numUngatedCleanups = 0;
+        for (Entry<List<String>, List<Double>> ent : baseline.entrySet()) {
+            List<String> key = ent.getKey();
+            List<Double> currentWallTimes = current.get(key);
+            if (currentWallTimes == null) {
+                continue;
+            }
+            numCompared++;
+            TrialStatistics baselineStats = stats(ent.getValue());
+            TrialStatistics currentStats = stats(currentWallTimes);
+            double deltaPercent = (currentStats.mean - baselineStats.mean) / baselineStats.mean * 100.0;
+            double pValue = TrialStatistics.welchTTestPValue(baselineStats, currentStats);
+            boolean isGated = gateCleanup || !FileReadingBenchmark.CLEANUP_LABEL.equals(key.get(0));
+            // Judge cells with too few samples for the t-test by the threshold alone
+            boolean significant = Double.isNaN(pValue) || pValue <= alpha;
+            if (Double.isNaN(pValue) && isGated) {
+                numUntestable++;
+            }
+            String verdict;
+            if (significant && deltaPercent > thresholdPercent && !isGated) {
+                verdict = "slower";
+                numUngatedCleanups++;
+            } else if (significant && deltaPercent > thresholdPercent) {
+                verdict = "REGRESSION";
+                numRegressions++;
+            } else if (significant && deltaPercent < -thresholdPercent) {
+                verdict = "improvement";
+                numImprovements++;
+            } else {
+                verdict = "-";
+            }
+            // Key columns: strategy, engine, fileSize, numFiles, cache, sizes
+            System.out.println(key.get(2) + "\t" + key.get(3) + "\t" + key.get(5) + "\t" + key.get(0) + "\t"
+                    + key.get(1) + "\t" + key.get(4) + "\t"
+                    + String.format("%.4f\t%.4f\t%+.1f\t%s\t%s", baselineStats.mean, currentStats.mean,
+                            deltaPercent, Double.isNaN(pValue) ? "-" : String.format("%.4f", pValue), verdict));
+        }
+        int numUnmatched = baseline.size() + current.size() - 2 * numCompared;
+        System.out.println("\nCompared " + numCompared + " cells: " + numRegressions + " regressions, "
+                + numImprovements + " improvements" + (numUnmatched > 0
+                        ? " (" + numUnmatched + " cells were only present in one of the files)"
+                        : ""));
+        if (numUngatedCleanups > 0) {
+            System.err.println("Note: " + numUngatedCleanups + " dataset cleanups were slower by more than the"
+                    + " threshold (verdict \"slower\"), which is not counted as a regression without --gate-cleanup");
+        }
+        if (numUntestable > 0) {
+            System.err.println("Warning: " + numUntestable + " cells had fewer than two samples in one of the files,"
+                    + " so they were judged by the threshold alone, without a significance test (P-value \"-\")");
+        }
+        System.exit(numRegressions > 0 ? 1 : 0);
+    }
+}
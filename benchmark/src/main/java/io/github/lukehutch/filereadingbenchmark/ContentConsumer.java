@@ -0,0 +1,23 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Consumes the contents of a file read by a {@link ReadStrategy}, so that a caller can prove that the contents were
+ * actually read (e.g. by folding every byte into a checksum that is passed to a JMH {@code Blackhole}).
+ */
+@FunctionalInterface
+public interface ContentConsumer {
+    /** A consumer that ignores the contents. */
+    ContentConsumer IGNORE = contents -> {
+    };
+
+    /**
+     * Consume the contents of a file. Called on the thread that read the file.
+     *
+     * @param contents
+     *            The contents of the file, from the position to the limit of the buffer. The buffer may be reused by
+     *            the strategy once this method returns, so it must not be retained.
+     */
+    void accept(ByteBuffer contents);
+}
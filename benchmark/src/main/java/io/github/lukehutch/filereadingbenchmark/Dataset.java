@@ -0,0 +1,528 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * A set of files of random bytes, spread across subdirectories, with sizes drawn from a {@link SizeDistribution}. A
+ * dataset is either temporary, in which case closing the dataset deletes it, or a persistent fixture that is
+ * validated against its manifest and reused across runs.
+ */
+public class Dataset implements Closeable {
+    /** The default number of files in each subdirectory. */
+    public static final int DEFAULT_FILES_PER_DIR = 1000;
+
+    /**
+     * The size of the chunks in which files are written and validated, so that the memory used does not depend on
+     * the file sizes. A multiple of 8, so that the random contents of a file (which are generated 8 bytes at a
+     * time) do not depend on the chunk size either.
+     */
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * The chunk buffer of each dataset generation thread, reused for all the files that the thread writes or
+     * validates.
+     */
+    private static final ThreadLocal<byte[]> CHUNK_BUFFER = ThreadLocal.withInitial(() -> new byte[CHUNK_SIZE]);
+
+    /**
+     * The root directories of the temporary datasets that have not been closed yet, which are deleted by a
+     * shutdown hook if the JVM exits before they are closed. Only ever holds the currently open datasets, so it does
+     * not grow over the course of a sweep (unlike registering every file with {@link File#deleteOnExit()}, which
+     * keeps every path in memory until the JVM exits).
+     */
+    private static final Set<Path> OPEN_TEMP_DIRS = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (final Path rootDir : OPEN_TEMP_DIRS) {
+                deleteTree(rootDir);
+            }
+        }, "Dataset cleanup"));
+    }
+
+    /** The root directory of the dataset, if it is temporary, otherwise null. */
+    private Path tempRootDir;
+
+    /** The files to read. */
+    private final List<File> files = new ArrayList<>();
+
+    /** The number of files in each subdirectory. */
+    private int filesPerDir;
+
+    /** The time taken to delete the dataset, in nanoseconds, or -1 if it has not been deleted in parallel. */
+    private long cleanupNanos = -1L;
+
+    /** The number of threads that deleted the dataset, or 0 if it has not been deleted. */
+    private int cleanupThreads;
+
+    private Dataset() {
+    }
+
+    /**
+     * Create a dataset in a new directory in the system temporary directory, with
+     * {@link #DEFAULT_FILES_PER_DIR} files per subdirectory.
+     *
+     * @param numFiles
+     *            The number of files.
+     * @param fileSize
+     *            The size of each file.
+     * @return The dataset.
+     * @throws IOException
+     *             If the dataset could not be created. Any files that were already created are deleted.
+     */
+    public static Dataset create(final int numFiles, final int fileSize) throws IOException {
+        return create(null, SizeDistribution.UNIFORM, numFiles, (long) numFiles * fileSize, DEFAULT_FILES_PER_DIR);
+    }
+
+    /**
+     * Create a dataset in a new temporary directory.
+     *
+     * @param parentDir
+     *            The directory to create the dataset's directory in, or null for the system temporary directory.
+     * @param sizeDistribution
+     *            The distribution of the file sizes.
+     * @param numFiles
+     *            The number of files.
+     * @param totalBytes
+     *            The total size of the files.
+     * @param filesPerDir
+     *            The number of files in each subdirectory.
+     * @return The dataset.
+     * @throws IOException
+     *             If the dataset could not be created. Any files that were already created are deleted.
+     */
+    public static Dataset create(final File parentDir, final SizeDistribution sizeDistribution, final int numFiles,
+            final long totalBytes, final int filesPerDir) throws IOException {
+        final Dataset dataset = new Dataset();
+        try {
+            dataset.generate(parentDir, sizeDistribution.fileSizes(numFiles, totalBytes), filesPerDir);
+        } catch (IOException | RuntimeException e) {
+            dataset.close();
+            throw e;
+        }
+        return dataset;
+    }
+
+    /**
+     * Generate the files of the dataset. The subdirectories are filled in parallel, each by a task with its own
+     * random number generator, seeded from a single root generator.
+     */
+    private void generate(final File parentDir, final int[] fileSizes, final int filesPerDir) throws IOException {
+        // Create temporary dir
+        tempRootDir = parentDir == null ? Files.createTempDirectory("benchmark")
+                : Files.createTempDirectory(parentDir.toPath(), "benchmark");
+        OPEN_TEMP_DIRS.add(tempRootDir);
+        this.filesPerDir = filesPerDir;
+        final File tempDir = tempRootDir.toFile();
+
+        // Create subdirectories, and record the files to create in each of them
+        final int numFiles = fileSizes.length;
+        final int numDirs = (numFiles + filesPerDir - 1) / filesPerDir;
+        for (int dirIdx = 0; dirIdx < numDirs; dirIdx++) {
+            final File dir = new File(tempDir, "" + dirIdx);
+            if (!dir.mkdir()) {
+                throw new IOException("Could not make dir " + dir);
+            }
+            for (int i = dirIdx * filesPerDir, end = Math.min(i + filesPerDir, numFiles); i < end; i++) {
+                files.add(new File(dir, "" + i));
+            }
+        }
+
+        // Create temporary files, one task per subdirectory
+        final SplittableRandom rootRandom = new SplittableRandom();
+        final long[] dirSeeds = new long[numDirs];
+        for (int dirIdx = 0; dirIdx < numDirs; dirIdx++) {
+            dirSeeds[dirIdx] = rootRandom.nextLong();
+        }
+        runPerDir(numDirs, dirIdx -> writeFiles(dirFiles(dirIdx, filesPerDir), fileSizes, dirIdx * filesPerDir,
+                new SplittableRandom(dirSeeds[dirIdx]), null));
+    }
+
+    /**
+     * Open a persistent dataset (fixture) in a fixture directory, creating it if it does not exist. Each
+     * subdirectory that is listed in the dataset's manifest is validated against the manifest (by the size and
+     * CRC32 checksum of each of its files), and reused if valid. Any subdirectory that is missing or invalid is
+     * regenerated from its seed in the manifest (or from a new seed, if it is not in the manifest), and the manifest
+     * is rewritten. Closing the dataset does not delete it.
+     *
+     * @param fixtureDir
+     *            The fixture directory, which contains one dataset directory per combination of parameters.
+     * @param sizeDistribution
+     *            The distribution of the file sizes.
+     * @param numFiles
+     *            The number of files.
+     * @param totalBytes
+     *            The total size of the files.
+     * @param filesPerDir
+     *            The number of files in each subdirectory.
+     * @return The dataset.
+     * @throws IOException
+     *             If the dataset could not be validated or generated.
+     */
+    public static Dataset openFixture(final File fixtureDir, final SizeDistribution sizeDistribution,
+            final int numFiles, final long totalBytes, final int filesPerDir) throws IOException {
+        final int meanFileSize = SizeDistribution.meanFileSize(numFiles, totalBytes);
+        final File datasetDir = new File(fixtureDir, numFiles + "x" + meanFileSize + "-" + filesPerDir
+                + (sizeDistribution == SizeDistribution.UNIFORM ? "" : "-" + sizeDistribution.label()));
+        if (!datasetDir.isDirectory() && !datasetDir.mkdirs()) {
+            throw new IOException("Could not make dir " + datasetDir);
+        }
+        final int[] fileSizes = sizeDistribution.fileSizes(numFiles, totalBytes);
+        final FixtureManifest manifest = FixtureManifest.read(datasetDir, fileSizes, meanFileSize, filesPerDir);
+        final Dataset dataset = new Dataset();
+        final int numDirs = manifest.dirSeeds.length;
+        for (int i = 0; i < numFiles; i++) {
+            dataset.files.add(new File(new File(datasetDir, "" + (i / filesPerDir)), "" + i));
+        }
+
+        // Choose a seed for each subdirectory that is not in the manifest
+        final SplittableRandom rootRandom = new SplittableRandom();
+        final boolean[] dirIsListed = new boolean[numDirs];
+        for (int dirIdx = 0; dirIdx < numDirs; dirIdx++) {
+            dirIsListed[dirIdx] = manifest.dirSeeds[dirIdx] != null;
+            if (!dirIsListed[dirIdx]) {
+                manifest.dirSeeds[dirIdx] = rootRandom.nextLong();
+            }
+        }
+
+        // Validate each subdirectory, and regenerate it if it is missing or invalid
+        final AtomicInteger numRegeneratedDirs = new AtomicInteger();
+        try {
+            runPerDir(numDirs, dirIdx -> {
+                final int firstFileIdx = dirIdx * filesPerDir;
+                final List<File> dirFiles = dataset.dirFiles(dirIdx, filesPerDir);
+                if (dirIsListed[dirIdx] && filesAreValid(dirFiles, fileSizes, firstFileIdx, manifest.fileCrcs)) {
+                    return;
+                }
+                final File dir = new File(datasetDir, "" + dirIdx);
+                final File[] staleFiles = dir.listFiles();
+                if (staleFiles != null) {
+                    for (final File staleFile : staleFiles) {
+                        Files.delete(staleFile.toPath());
+                    }
+                } else if (!dir.mkdir()) {
+                    throw new IOException("Could not make dir " + dir);
+                }
+                writeFiles(dirFiles, fileSizes, firstFileIdx, new SplittableRandom(manifest.dirSeeds[dirIdx]),
+                        manifest.fileCrcs);
+                numRegeneratedDirs.incrementAndGet();
+            });
+        } finally {
+            // Record the subdirectories that were regenerated before any failure
+            if (numRegeneratedDirs.get() > 0) {
+                manifest.write(datasetDir);
+            }
+        }
+        if (numRegeneratedDirs.get() > 0) {
+            System.err.println("Fixture " + datasetDir + ": regenerated " + numRegeneratedDirs.get() + " of "
+                    + numDirs + " dirs");
+        }
+        return dataset;
+    }
+
+    /** A task that processes one subdirectory of a dataset. */
+    @FunctionalInterface
+    private interface DirTask {
+        /**
+         * Process a subdirectory.
+         *
+         * @param dirIdx
+         *            The index of the subdirectory.
+         * @throws IOException
+         *             If the subdirectory could not be processed.
+         */
+        void run(int dirIdx) throws IOException;
+    }
+
+    /**
+     * Get the number of threads that {@link #runPerDir(int, DirTask)} uses.
+     *
+     * @param numDirs
+     *            The number of subdirectories.
+     * @return The number of threads.
+     */
+    private static int numPerDirThreads(final int numDirs) {
+        return Math.max(1, Math.min(numDirs, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Run a task for each subdirectory, in parallel, with one thread per core.
+     *
+     * @param numDirs
+     *            The number of subdirectories.
+     * @param task
+     *            The task.
+     * @throws IOException
+     *             If the task failed for any subdirectory.
+     */
+    private static void runPerDir(final int numDirs, final DirTask task) throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(numPerDirThreads(numDirs));
+        try {
+            final List<Future<Void>> futures = new ArrayList<>(numDirs);
+            for (int dirIdx = 0; dirIdx < numDirs; dirIdx++) {
+                final int finalDirIdx = dirIdx;
+                futures.add(executor.submit(() -> {
+                    task.run(finalDirIdx);
+                    return null;
+                }));
+            }
+            for (final Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (final ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IOException("Dataset task failed", e.getCause());
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while processing dataset", e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Get the files of a subdirectory.
+     *
+     * @param dirIdx
+     *            The index of the subdirectory.
+     * @param filesPerDir
+     *            The number of files in each subdirectory.
+     * @return The files in the subdirectory.
+     */
+    private List<File> dirFiles(final int dirIdx, final int filesPerDir) {
+        return files.subList(dirIdx * filesPerDir, Math.min((dirIdx + 1) * filesPerDir, files.size()));
+    }
+
+    /**
+     * Write files of random bytes.
+     *
+     * @param filesToWrite
+     *            The files to write.
+     * @param fileSizes
+     *            The size of each file in the dataset.
+     * @param firstFileIdx
+     *            The index in the dataset of the first file to write.
+     * @param random
+     *            The random number generator, which is only used by the calling thread.
+     * @param crcs
+     *            If non-null, the array to store the CRC32 checksum of each file in the dataset in.
+     * @throws IOException
+     *             If a file could not be written.
+     */
+    private static void writeFiles(final List<File> filesToWrite, final int[] fileSizes, final int firstFileIdx,
+            final SplittableRandom random, final long[] crcs) throws IOException {
+        final byte[] buffer = CHUNK_BUFFER.get();
+        for (int i = 0; i < filesToWrite.size(); i++) {
+            final int fileSize = fileSizes[firstFileIdx + i];
+            final CRC32 crc = crcs == null ? null : new CRC32();
+            try (FileOutputStream out = new FileOutputStream(filesToWrite.get(i))) {
+                for (int chunkStart = 0; chunkStart < fileSize; chunkStart += CHUNK_SIZE) {
+                    final int chunkSize = Math.min(CHUNK_SIZE, fileSize - chunkStart);
+                    fillRandom(buffer, chunkSize, random);
+                    out.write(buffer, 0, chunkSize);
+                    if (crc != null) {
+                        crc.update(buffer, 0, chunkSize);
+                    }
+                }
+            }
+            if (crc != null) {
+                crcs[firstFileIdx + i] = crc.getValue();
+            }
+        }
+    }
+
+    /**
+     * Check that files have the expected size and CRC32 checksum.
+     *
+     * @param filesToCheck
+     *            The files to check.
+     * @param fileSizes
+     *            The expected size of each file in the dataset.
+     * @param firstFileIdx
+     *            The index in the dataset of the first file to check.
+     * @param crcs
+     *            The expected CRC32 checksum of each file in the dataset, or -1 if unknown.
+     * @return True if all the files exist, and have the expected size and checksum.
+     * @throws IOException
+     *             If a file could not be read.
+     */
+    private static boolean filesAreValid(final List<File> filesToCheck, final int[] fileSizes,
+            final int firstFileIdx, final long[] crcs) throws IOException {
+        final byte[] buffer = CHUNK_BUFFER.get();
+        for (int i = 0; i < filesToCheck.size(); i++) {
+            final File file = filesToCheck.get(i);
+            final int fileSize = fileSizes[firstFileIdx + i];
+            if (crcs[firstFileIdx + i] < 0L || file.length() != fileSize) {
+                return false;
+            }
+            final CRC32 crc = new CRC32();
+            try (FileInputStream in = new FileInputStream(file)) {
+                for (int bytesRead; (bytesRead = in.read(buffer)) > 0;) {
+                    crc.update(buffer, 0, bytesRead);
+                }
+            }
+            if (crc.getValue() != crcs[firstFileIdx + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fill the start of a buffer with random bytes, eight bytes at a time.
+     *
+     * @param buffer
+     *            The buffer.
+     * @param len
+     *            The number of bytes to fill.
+     * @param random
+     *            The random number generator.
+     */
+    private static void fillRandom(final byte[] buffer, final int len, final SplittableRandom random) {
+        int i = 0;
+        while (i < len) {
+            long word = random.nextLong();
+            for (final int wordEnd = Math.min(i + 8, len); i < wordEnd; i++) {
+                buffer[i] = (byte) word;
+                word >>>= 8;
+            }
+        }
+    }
+
+    /**
+     * Get the files of the dataset, in directory order.
+     *
+     * @return The files.
+     */
+    public List<File> files() {
+        return Collections.unmodifiableList(files);
+    }
+
+    /**
+     * Delete a directory tree. Files that no longer exist are skipped, so that the tree can be deleted by the
+     * shutdown hook while it is being deleted by {@link #close()}.
+     *
+     * @param rootDir
+     *            The root directory of the tree.
+     */
+    private static void deleteTree(final Path rootDir) {
+        try {
+            Files.walkFileTree(rootDir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs)
+                        throws IOException {
+                    Files.deleteIfExists(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(final Path file, final IOException e) throws IOException {
+                    if (e instanceof NoSuchFileException) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    throw e;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(final Path dir, final IOException e) throws IOException {
+                    if (e != null && !(e instanceof NoSuchFileException)) {
+                        throw e;
+                    }
+                    Files.deleteIfExists(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (final NoSuchFileException e) {
+            // Already deleted
+        } catch (final IOException e) {
+            System.err.println("Could not delete " + rootDir + ": " + e);
+        }
+    }
+
+    /**
+     * Delete the files of a temporary dataset, in parallel, with one task per subdirectory, then delete the root
+     * directory.
+     *
+     * @throws IOException
+     *             If a file or directory could not be deleted (e.g. because the dataset was only partially
+     *             generated).
+     */
+    private void deleteInParallel() throws IOException {
+        final int numDirs = (files.size() + filesPerDir - 1) / filesPerDir;
+        cleanupThreads = numPerDirThreads(numDirs);
+        runPerDir(numDirs, dirIdx -> {
+            for (final File file : dirFiles(dirIdx, filesPerDir)) {
+                Files.delete(file.toPath());
+            }
+            Files.delete(tempRootDir.resolve("" + dirIdx));
+        });
+        Files.delete(tempRootDir);
+    }
+
+    /**
+     * Get the time taken by {@link #close()} to delete the dataset.
+     *
+     * @return The time taken to delete the dataset, in nanoseconds, or -1 if the dataset is a fixture, has not
+     *         been closed yet, or could not be deleted in parallel (in which case the time is not comparable).
+     */
+    public long cleanupNanos() {
+        return cleanupNanos;
+    }
+
+    /**
+     * Get the number of threads that {@link #close()} used to delete the dataset.
+     *
+     * @return The number of threads, or 0 if the dataset is a fixture, or has not been closed yet.
+     */
+    public int cleanupThreads() {
+        return cleanupThreads;
+    }
+
+    /**
+     * Delete the dataset, if it is temporary, and record the time taken. The subdirectories are deleted in parallel.
+     */
+    @Override
+    public void close() {
+        if (tempRootDir != null) {
+            final long startTime = System.nanoTime();
+            try {
+                deleteInParallel();
+                cleanupNanos = System.nanoTime() - startTime;
+            } catch (final IOException e) {
+                System.err.println("Could not delete " + tempRootDir + " in parallel (" + e
+                        + "), so deleting it by walking the tree, and not reporting the cleanup time");
+                // Delete whatever is left by walking the tree, which skips files that do not exist
+                deleteTree(tempRootDir);
+            }
+            OPEN_TEMP_DIRS.remove(tempRootDir);
+            tempRootDir = null;
+        }
+        files.clear();
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Metadata about the environment that the benchmark is run in, recorded with each result. */
+public final class Environment {
+    private Environment() {
+    }
+
+    /**
+     * Describe the environment.
+     *
+     * @param dataDir
+     *            The directory that the datasets are created in.
+     * @return The environment metadata, keyed by {@link ResultWriter} column name.
+     */
+    public static Map<String, Object> describe(final File dataDir) {
+        final Map<String, Object> environment = new LinkedHashMap<>();
+        environment.put("jdk", System.getProperty("java.vendor") + " " + System.getProperty("java.version"));
+        environment.put("cores", Runtime.getRuntime().availableProcessors());
+        environment.put("os", System.getProperty("os.name") + " " + System.getProperty("os.version") + " "
+                + System.getProperty("os.arch"));
+        environment.put("fsType", filesystemType(dataDir));
+        return environment;
+    }
+
+    /**
+     * Find the type of the filesystem that contains a directory, by finding the longest mount point in
+     * {@code /proc/mounts} that contains the directory.
+     *
+     * @param dir
+     *            The directory.
+     * @return The filesystem type, or "unknown" if it could not be determined (e.g. if not running on Linux).
+     */
+    static String filesystemType(final File dir) {
+        final List<String> mounts;
+        final String path;
+        try {
+            mounts = Files.readAllLines(Paths.get("/proc/mounts"), StandardCharsets.UTF_8);
+            path = dir.getCanonicalPath();
+        } catch (final IOException e) {
+            return "unknown";
+        }
+        String fsType = "unknown";
+        int longestMountPointLen = -1;
+        for (final String mount : mounts) {
+            // Format: device mountpoint fstype options dump pass
+            final String[] fields = mount.split(" ");
+            if (fields.length < 3) {
+                continue;
+            }
+            // Spaces in mount points are escaped as octal
+            final String mountPoint = fields[1].replace("\\040", " ");
+            final boolean containsPath = mountPoint.equals("/") || path.equals(mountPoint)
+                    || path.startsWith(mountPoint + "/");
+            // Later mounts on the same mount point shadow earlier ones
+            if (containsPath && mountPoint.length() >= longestMountPointLen) {
+                longestMountPointLen = mountPoint.length();
+                fsType = fields[2];
+            }
+        }
+        return fsType;
+    }
+}
@@ -0,0 +1,408 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FileReadingBenchmark {
+    /** The column label suffix of the virtual thread executor. */
+    private static final String VIRTUAL_THREADS_LABEL = "V";
+
+    /** The column label suffix of the batched dispatch mode. */
+    private static final String BATCHED_LABEL = "b";
+
+    /** The column label suffix of the fork/join dispatch mode. */
+    private static final String FORK_JOIN_LABEL = "fj";
+
+    /** The strategy label of the rows that report the time taken to delete a temporary dataset. */
+    static final String CLEANUP_LABEL = "Cleanup";
+
+    /**
+     * Create an executor that starts a new virtual thread for each task. Invoked reflectively, so that the
+     * benchmark can still be built and run on JDKs that predate virtual threads.
+     * 
+     * @param options
+     *            The options, which configure the virtual thread scheduler.
+     * @return The executor, or null if virtual threads are not supported by this JDK.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor(final BenchmarkOptions options) {
+        // The scheduler reads these properties when the first virtual thread is created
+        if (options.carrierParallelism > 0) {
+            System.setProperty("jdk.virtualThreadScheduler.parallelism", "" + options.carrierParallelism);
+        }
+        if (options.maxCarriers > 0) {
+            System.setProperty("jdk.virtualThreadScheduler.maxPoolSize", "" + options.maxCarriers);
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Could not create virtual thread executor", e);
+        }
+    }
+
+    /**
+     * Create a thread factory for a fixed thread pool, whose threads are named as worker threads, so that their CPU
+     * time is counted by {@link ResourceUsage}.
+     * 
+     * @param poolLabel
+     *            The label of the pool, which is appended to the thread name prefix.
+     * @return The thread factory.
+     */
+    private static ThreadFactory workerThreadFactory(final String poolLabel) {
+        AtomicInteger numThreads = new AtomicInteger();
+        return runnable -> new Thread(runnable,
+                ResourceUsage.WORKER_THREAD_NAME_PREFIX + poolLabel + "-" + numThreads.incrementAndGet());
+    }
+
+    /**
+     * Create a fork/join pool whose threads are named as worker threads, so that their CPU time is counted by
+     * {@link ResourceUsage}.
+     * 
+     * @param numThreads
+     *            The parallelism of the pool.
+     * @param poolLabel
+     *            The label of the pool, which is appended to the thread name prefix.
+     * @return The pool.
+     */
+    private static ForkJoinPool newWorkerForkJoinPool(final int numThreads, final String poolLabel) {
+        return new ForkJoinPool(numThreads, pool -> {
+            // Named before the thread is started, which is when the JVM sets the native thread name
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(ResourceUsage.WORKER_THREAD_NAME_PREFIX + poolLabel + "-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Read all the files using the given strategy and engine, for each warmup pass and measured pass. In cold cache
+     * mode, the files are evicted from the page cache before each pass, outside the measured time.
+     * 
+     * @param options
+     *            The options, which give the number of passes.
+     * @param strategy
+     *            The {@link ReadStrategy}.
+     * @param engine
+     *            The {@link ReadEngine}.
+     * @param filesToRead
+     *            The files to read.
+     * @param fileSize
+     *            The mean file size, rounded up.
+     * @param sizeDistribution
+     *            The distribution of the file sizes.
+     * @param coldCache
+     *            If true, evict the files from the page cache before each pass.
+     * @param latencyHistogram
+     *            The histogram to record per-file read latencies in.
+     * @return The measured passes.
+     * @throws IOException
+     *             If strategy setup or teardown failed, or the files could not be evicted from the page cache.
+     */
+    private static CellResult measureCell(final BenchmarkOptions options, final ReadStrategy strategy,
+            final ReadEngine engine, final List<File> filesToRead, final int fileSize,
+            final SizeDistribution sizeDistribution, final boolean coldCache, final LatencyHistogram latencyHistogram)
+            throws IOException {
+        CellResult cell = new CellResult(strategy, engine, fileSize, sizeDistribution, filesToRead.size(), coldCache,
+                options.measuredPasses);
+        ReadStrategy latencyRecordingStrategy = new LatencyRecordingReadStrategy(strategy, latencyHistogram);
+        engine.prepare(filesToRead);
+        for (int pass = -options.warmupPasses; pass < options.measuredPasses; pass++) {
+            if (coldCache) {
+                PageCache.evict(filesToRead);
+            }
+            latencyHistogram.reset();
+            latencyRecordingStrategy.setUp();
+            try {
+                ResourceUsage resourceUsageBefore = ResourceUsage.sampleBefore();
+                ReadEvents.BatchComplete batchEvent = new ReadEvents.BatchComplete();
+                batchEvent.begin();
+                long t1 = System.nanoTime();
+                long bytesRead = engine.readAll(filesToRead, latencyRecordingStrategy);
+                long elapsedNanos = System.nanoTime() - t1;
+                batchEvent.end();
+                if (batchEvent.shouldCommit()) {
+                    batchEvent.strategy = strategy.name();
+                    batchEvent.engine = engine.label();
+                    batchEvent.pass = pass;
+                    batchEvent.numFiles = filesToRead.size();
+                    batchEvent.bytesRead = bytesRead;
+                    batchEvent.commit();
+                }
+                ResourceUsage resourceUsage = ResourceUsage.sampleAfter().since(resourceUsageBefore);
+                if (pass >= 0) {
+                    cell.recordPass(pass, elapsedNanos, bytesRead, latencyHistogram.snapshot(), resourceUsage);
+                }
+            } finally {
+                latencyRecordingStrategy.tearDown();
+            }
+        }
+        return cell;
+    }
+
+    /**
+     * Print a row of the results table.
+     * 
+     * @param cell
+     *            The cell.
+     * @param baseline
+     *            The single-threaded cell for the same strategy and dataset, or null if there is none.
+     */
+    private static void printCell(final CellResult cell, final CellResult baseline) {
+        TrialStatistics stats = cell.stats();
+        StringBuilder row = new StringBuilder();
+        row.append(cell.fileSize).append('\t').append(cell.numFiles).append('\t')
+                .append(cell.sizeDistribution.label()).append('\t').append(cell.strategy.name()).append('\t')
+                .append(cell.engine.label()).append('\t').append(cell.cacheLabel());
+        row.append(String.format("\t%.4f\t%.4f\t%.4f\t%.4f\t%.4f", stats.mean, stats.stddev, stats.min, stats.p50,
+                stats.p95));
+        row.append(String.format("\t%.1f\t%.0f", cell.megabytesPerSec(), cell.filesPerSec()));
+        if (baseline != null) {
+            double speedup = cell.speedupOver(baseline);
+            row.append(String.format("\t%.2f", speedup));
+            int numThreads = cell.engine.numThreads();
+            row.append(numThreads > 0 ? String.format("\t%.2f", speedup / numThreads) : "\t-");
+        } else {
+            row.append("\t-\t-");
+        }
+        LatencyHistogram.Snapshot latencies = cell.mergedLatencies;
+        row.append(String.format("\t%.1f\t%.1f\t%.1f\t%.1f", latencies.valueAtPercentile(50.0) * 1e-3,
+                latencies.valueAtPercentile(99.0) * 1e-3, latencies.valueAtPercentile(99.9) * 1e-3,
+                latencies.maxValue() * 1e-3));
+        double allocatedBytesPerFile = cell.allocatedBytesPerFile();
+        row.append(allocatedBytesPerFile < 0.0 ? "\t-" : String.format("\t%.0f", allocatedBytesPerFile));
+        row.append(String.format("\t%.1f\t%.1f", cell.gcPausesPerPass(), cell.gcPauseMillisPerPass()));
+        double cpuSecs = cell.cpuSecsPerPass();
+        row.append(cpuSecs < 0.0 ? "\t-" : String.format("\t%.4f", cpuSecs));
+        double userCpuSecs = cell.userCpuSecsPerPass();
+        row.append(userCpuSecs < 0.0 ? "\t-\t-"
+                : String.format("\t%.4f\t%.4f", userCpuSecs, cell.systemCpuSecsPerPass()));
+        double processCpuPerWallTime = cell.processCpuPerWallTime();
+        row.append(processCpuPerWallTime < 0.0 ? "\t-" : String.format("\t%.2f", processCpuPerWallTime));
+        double pageFaultsPerMegabyte = cell.pageFaultsPerMegabyte();
+        row.append(pageFaultsPerMegabyte < 0.0 ? "\t-\t-"
+                : String.format("\t%.1f\t%.1f", pageFaultsPerMegabyte, cell.majorFaultsPerMegabyte()));
+        double readSyscallsPerFile = cell.readSyscallsPerFile();
+        row.append(readSyscallsPerFile < 0.0 ? "\t-\t-"
+                : String.format("\t%.1f\t%.1f", readSyscallsPerFile, cell.storageReadMegabytesPerPass()));
+        System.out.println(row);
+    }
+
+    /**
+     * Print the time taken to delete a temporary dataset.
+     *
+     * @param dataset
+     *            The dataset, which has been closed.
+     * @param fileSize
+     *            The mean file size, rounded up.
+     * @param sizeDistribution
+     *            The distribution of the file sizes.
+     * @param numFiles
+     *            The number of files.
+     */
+    private static void printCleanup(final Dataset dataset, final int fileSize,
+            final SizeDistribution sizeDistribution, final int numFiles) {
+        double cleanupSecs = dataset.cleanupNanos() * 1e-9;
+        System.out.println(String.format("%d\t%d\t%s\t%s\t%d\t-\t%.4f\t-\t-\t-\t-\t-\t%.0f", fileSize,
+                numFiles, sizeDistribution.label(), CLEANUP_LABEL, dataset.cleanupThreads(), cleanupSecs,
+                numFiles / cleanupSecs));
+    }
+
+    /**
+     * Get the structured output record for the deletion of a temporary dataset.
+     *
+     * @param dataset
+     *            The dataset, which has been closed.
+     * @param fileSize
+     *            The mean file size, rounded up.
+     * @param sizeDistribution
+     *            The distribution of the file sizes.
+     * @param numFiles
+     *            The number of files.
+     * @param environment
+     *            The environment fields to add to the record.
+     * @return The record.
+     */
+    private static Map<String, Object> cleanupRecord(final Dataset dataset, final int fileSize,
+            final SizeDistribution sizeDistribution, final int numFiles, final Map<String, Object> environment) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("strategy", CLEANUP_LABEL);
+        record.put("engine", "" + dataset.cleanupThreads());
+        record.put("threads", dataset.cleanupThreads());
+        record.put("fileSize", fileSize);
+        record.put("numFiles", numFiles);
+        record.put("sizes", sizeDistribution.label());
+        record.put("trial", 0);
+        record.put("wallNanos", dataset.cleanupNanos());
+        record.putAll(environment);
+        return record;
+    }
+
+    public static void main(String[] args) throws IOException {
+        BenchmarkOptions options;
+        try {
+            options = BenchmarkOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(BenchmarkOptions.USAGE);
+            System.exit(1);
+            return;
+        }
+
+        List<ExecutorService> threadPools = new ArrayList<>();
+        List<ReadEngine> engines = new ArrayList<>();
+        for (int numThreads : options.threadCounts) {
+            ExecutorService threadPool = Executors.newFixedThreadPool(numThreads,
+                    workerThreadFactory("" + numThreads));
+            threadPools.add(threadPool);
+            engines.add(new PerFileReadEngine(threadPool, numThreads, "" + numThreads));
+        }
+        if (options.coldCache && !PageCache.isEvictionSupported()) {
+            System.err.println("Cold cache mode needs posix_fadvise, called via the Foreign Function and Memory API"
+                    + " of JDK 21 or later -- not supported by this JDK or platform");
+            System.exit(1);
+            return;
+        }
+
+        ExecutorService virtualThreadExecutor = newVirtualThreadPerTaskExecutor(options);
+        if (virtualThreadExecutor != null) {
+            threadPools.add(virtualThreadExecutor);
+            engines.add(new PerFileReadEngine(virtualThreadExecutor, 0, VIRTUAL_THREADS_LABEL));
+        } else {
+            System.err.println("Virtual threads are not supported by this JDK -- skipping virtual thread columns");
+        }
+
+        // The batched engines share the fixed thread pools with the per-file engines
+        for (int i = 0; i < options.threadCounts.length; i++) {
+            int numThreads = options.threadCounts[i];
+            engines.add(new BatchedReadEngine(threadPools.get(i), numThreads, numThreads + BATCHED_LABEL));
+        }
+        for (int numThreads : options.threadCounts) {
+            ForkJoinPool forkJoinPool = newWorkerForkJoinPool(numThreads, numThreads + FORK_JOIN_LABEL);
+            threadPools.add(forkJoinPool);
+            engines.add(new ForkJoinReadEngine(forkJoinPool, numThreads + FORK_JOIN_LABEL));
+        }
+
+        List<ResultWriter> resultWriters = new ArrayList<>();
+        if (options.csvFile != null) {
+            resultWriters.add(ResultWriter.csv(options.csvFile));
+        }
+        if (options.jsonFile != null) {
+            resultWriters.add(ResultWriter.jsonLines(options.jsonFile));
+        }
+        // Make stripe collisions between the threads of a pool unlikely (virtual threads may still share stripes)
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        for (int numThreads : options.threadCounts) {
+            maxThreads = Math.max(maxThreads, numThreads);
+        }
+        LatencyHistogram latencyHistogram = new LatencyHistogram(2 * maxThreads);
+        List<Boolean> cacheModes = new ArrayList<>();
+        if (options.warmCache) {
+            cacheModes.add(false);
+        }
+        if (options.coldCache) {
+            cacheModes.add(true);
+        }
+        File dataDir = options.fixtureDir != null ? options.fixtureDir
+                : options.dataDir != null ? options.dataDir : new File(System.getProperty("java.io.tmpdir"));
+        Map<String, Object> environment = Environment.describe(dataDir);
+
+        System.out.println("Total bytes per dataset: " + options.totalBytes + ", dataset directory: " + dataDir
+                + " (Filesize is the mean file size of the dataset, and Sizes is its file size distribution)");
+        System.out.println("Warmup passes: " + options.warmupPasses + ", measured passes: " + options.measuredPasses
+                + " (times in seconds; speedup and efficiency relative to 1 thread; per-file read latencies in us;"
+                + " bytes allocated per file; GC pauses and GC pause milliseconds per pass;"
+                + " worker thread CPU seconds per pass, and its user and system split; process CPU time / wall time"
+                + " (the split and CPU/wall are - for passes shorter than " + CellResult.MIN_TICKS_PER_PASS
+                + " clock ticks);"
+                + " worker thread page faults and major page faults per MB read; worker thread read syscalls per file;"
+                + " MB fetched from storage by the worker threads per pass)");
+        System.out.println("Filesize\tNumFiles\tSizes\tStrategy\tEngine\tCache\tMean\tStddev\tMin\tP50\tP95\tMB/s"
+                + "\tFiles/s\tSpeedup\tEfficiency\tLatP50\tLatP99\tLatP99.9\tLatMax\tAlloc/file\tGCPauses\tPauseMs"
+                + "\tCPU\tUser\tSys\tCPU/wall\tFaults/MB\tMajFaults/MB\tSyscr/file\tDiskMB");
+        try {
+            for (SizeDistribution sizeDistribution : options.sizeDistributions) {
+                for (int numFiles : options.numFilesSweep()) {
+                    int fileSize = SizeDistribution.meanFileSize(numFiles, options.totalBytes);
+                    Dataset dataset = options.fixtureDir != null
+                            ? Dataset.openFixture(options.fixtureDir, sizeDistribution, numFiles, options.totalBytes,
+                                    options.filesPerDir)
+                            : Dataset.create(options.dataDir, sizeDistribution, numFiles, options.totalBytes,
+                                    options.filesPerDir);
+                    try {
+                        List<File> filesToRead = dataset.files();
+
+                        // Try reading files using each strategy, with each engine, in each page cache mode
+                        for (boolean coldCache : cacheModes) {
+                            for (ReadStrategy strategy : ReadStrategies.ALL) {
+                                List<CellResult> cells = new ArrayList<>();
+                                CellResult baseline = null;
+                                for (ReadEngine engine : engines) {
+                                    CellResult cell = measureCell(options, strategy, engine, filesToRead,
+                                            fileSize, sizeDistribution, coldCache, latencyHistogram);
+                                    if (!cell.isColdCacheVerified()) {
+                                        System.err.println("Skipping " + strategy.name() + " " + engine.label()
+                                                + " cold with " + numFiles + " files: the passes fetched "
+                                                + String.format("%.1f of %.1f", cell.storageReadMegabytesPerPass(),
+                                                        cell.bytesRead[0] * 1e-6)
+                                                + " MB per pass from storage, so the files were still cached");
+                                        continue;
+                                    }
+                                    cells.add(cell);
+                                    if (baseline == null && engine.numThreads() == 1) {
+                                        baseline = cell;
+                                    }
+                                }
+                                for (CellResult cell : cells) {
+                                    printCell(cell, baseline);
+                                    for (ResultWriter resultWriter : resultWriters) {
+                                        for (Map<String, Object> record : cell.toRecords(environment)) {
+                                            resultWriter.write(record);
+                                        }
+                                        resultWriter.flush();
+                                    }
+                                }
+                            }
+                        }
+                    } finally {
+                        dataset.close();
+                    }
+                    if (dataset.cleanupNanos() >= 0L) {
+                        printCleanup(dataset, fileSize, sizeDistribution, numFiles);
+                        for (ResultWriter resultWriter : resultWriters) {
+                            resultWriter.write(
+                                    cleanupRecord(dataset, fileSize, sizeDistribution, numFiles, environment));
+                            resultWriter.flush();
+                        }
+                    }
+                    System.out.println();
+                }
+            }
+        } finally {
+            for (ResultWriter resultWriter : resultWriters) {
+                resultWriter.close();
+            }
+            // Shut down thread pools
+            for (ExecutorService threadPool : threadPools) {
+                threadPool.shutdown();
+                try {
+                    threadPool.awaitTermination(5000, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                }
+                threadPool.shutdownNow();
+            }
+        }
+        System.out.println("\nFinished.");
+    }
+
+}
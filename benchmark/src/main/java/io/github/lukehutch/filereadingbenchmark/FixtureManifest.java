@@ -0,0 +1,139 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * The manifest of a persistent dataset (fixture): the random seed that each subdirectory was generated from, and
+ * the size and CRC32 checksum of each file, so that the dataset can be validated and reused across runs, and any
+ * invalid subdirectory can be regenerated with identical contents. Stored as tab-separated lines:
+ *
+ * <pre>
+ * dataset  numFiles  meanFileSize  filesPerDir
+ * dir      dirIdx    seed
+ * file     fileIdx   size          crc32
+ * </pre>
+ */
+final class FixtureManifest {
+    /** The name of the manifest file in the dataset directory. */
+    static final String FILENAME = "manifest.tsv";
+
+    /** The number of files. */
+    final int numFiles;
+
+    /** The mean file size, rounded up. */
+    final int meanFileSize;
+
+    /** The size of each file. */
+    final int[] fileSizes;
+
+    /** The number of files in each subdirectory. */
+    final int filesPerDir;
+
+    /** The seed of each subdirectory, or null if the subdirectory has not been generated. */
+    final Long[] dirSeeds;
+
+    /** The CRC32 checksum of each file, or -1 if unknown. */
+    final long[] fileCrcs;
+
+    /**
+     * Constructor for an empty manifest.
+     *
+     * @param fileSizes
+     *            The size of each file.
+     * @param meanFileSize
+     *            The mean file size, rounded up.
+     * @param filesPerDir
+     *            The number of files in each subdirectory.
+     */
+    FixtureManifest(final int[] fileSizes, final int meanFileSize, final int filesPerDir) {
+        this.numFiles = fileSizes.length;
+        this.meanFileSize = meanFileSize;
+        this.fileSizes = fileSizes;
+        this.filesPerDir = filesPerDir;
+        this.dirSeeds = new Long[(numFiles + filesPerDir - 1) / filesPerDir];
+        this.fileCrcs = new long[numFiles];
+        Arrays.fill(fileCrcs, -1L);
+    }
+
+    /**
+     * Read the manifest of a dataset directory.
+     *
+     * @param datasetDir
+     *            The dataset directory.
+     * @param fileSizes
+     *            The expected size of each file. Files listed in the manifest with a different size are treated as
+     *            unknown.
+     * @param meanFileSize
+     *            The expected mean file size, rounded up.
+     * @param filesPerDir
+     *            The expected number of files in each subdirectory.
+     * @return The manifest, which is empty if there is no manifest, or if it is invalid or describes a different
+     *         dataset.
+     */
+    static FixtureManifest read(final File datasetDir, final int[] fileSizes, final int meanFileSize,
+            final int filesPerDir) {
+        final FixtureManifest manifest = new FixtureManifest(fileSizes, meanFileSize, filesPerDir);
+        final File manifestFile = new File(datasetDir, FILENAME);
+        if (!manifestFile.exists()) {
+            return manifest;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+            final String header = reader.readLine();
+            if (header == null
+                    || !header.equals("dataset\t" + fileSizes.length + "\t" + meanFileSize + "\t" + filesPerDir)) {
+                return manifest;
+            }
+            for (String line; (line = reader.readLine()) != null;) {
+                final String[] fields = line.split("\t");
+                if (fields[0].equals("dir") && fields.length == 3) {
+                    manifest.dirSeeds[Integer.parseInt(fields[1])] = Long.parseLong(fields[2]);
+                } else if (fields[0].equals("file") && fields.length == 4) {
+                    final int fileIdx = Integer.parseInt(fields[1]);
+                    if (Integer.parseInt(fields[2]) == fileSizes[fileIdx]) {
+                        manifest.fileCrcs[fileIdx] = Long.parseLong(fields[3], 16);
+                    }
+                }
+            }
+        } catch (final IOException | RuntimeException e) {
+            System.err.println("Ignoring invalid manifest " + manifestFile + ": " + e);
+            return new FixtureManifest(fileSizes, meanFileSize, filesPerDir);
+        }
+        return manifest;
+    }
+
+    /**
+     * Write the manifest to a dataset directory. The manifest is written to a temporary file first, then moved
+     * into place, so that an interrupted write does not leave a truncated manifest.
+     *
+     * @param datasetDir
+     *            The dataset directory.
+     * @throws IOException
+     *             If the manifest could not be written.
+     */
+    void write(final File datasetDir) throws IOException {
+        final File tempFile = new File(datasetDir, FILENAME + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("dataset\t" + numFiles + "\t" + meanFileSize + "\t" + filesPerDir + "\n");
+            for (int dirIdx = 0; dirIdx < dirSeeds.length; dirIdx++) {
+                if (dirSeeds[dirIdx] != null) {
+                    writer.write("dir\t" + dirIdx + "\t" + dirSeeds[dirIdx] + "\n");
+                }
+            }
+            for (int fileIdx = 0; fileIdx < numFiles; fileIdx++) {
+                if (fileCrcs[fileIdx] >= 0L) {
+                    writer.write("file\t" + fileIdx + "\t" + fileSizes[fileIdx] + "\t"
+                            + Long.toHexString(fileCrcs[fileIdx]) + "\n");
+                }
+            }
+        }
+        Files.move(tempFile.toPath(), new File(datasetDir, FILENAME).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reads the files in a {@link ForkJoinPool}, recursively splitting the file list first by directory, then by
+ * range, so that load imbalance (e.g. from uneven file sizes) is absorbed by work stealing.
+ */
+public class ForkJoinReadEngine implements ReadEngine {
+    /** The maximum number of files read sequentially by a single task. */
+    private static final int SEQUENTIAL_THRESHOLD = 8;
+
+    /** The pool. */
+    private final ForkJoinPool pool;
+
+    /** The label. */
+    private final String label;
+
+    /** The files that {@link #dirStarts} was computed for. */
+    private List<File> preparedFiles;
+
+    /** The start index of each run of files in the same directory in {@link #preparedFiles}, plus an end marker. */
+    private int[] dirStarts;
+
+    /**
+     * Constructor.
+     *
+     * @param pool
+     *            The pool.
+     * @param label
+     *            The label.
+     */
+    public ForkJoinReadEngine(final ForkJoinPool pool, final String label) {
+        this.pool = pool;
+        this.label = label;
+    }
+
+    @Override
+    public String label() {
+        return label;
+    }
+
+    @Override
+    public int numThreads() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public void prepare(final List<File> files) {
+        // Find the start index of each run of files in the same directory, plus an end marker
+        final List<Integer> dirStartIndices = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            if (i == 0 || !Objects.equals(files.get(i).getParentFile(), files.get(i - 1).getParentFile())) {
+                dirStartIndices.add(i);
+            }
+        }
+        dirStartIndices.add(files.size());
+        dirStarts = dirStartIndices.stream().mapToInt(Integer::intValue).toArray();
+        preparedFiles = files;
+    }
+
+    @Override
+    public long readAll(final List<File> files, final ReadStrategy strategy) {
+        if (files != preparedFiles) {
+            // Not prepared for this list -- prepare now, inside the measured time
+            prepare(files);
+        }
+        return pool.invoke(new DirRangeTask(files, dirStarts, 0, dirStarts.length - 1, strategy));
+    }
+
+    /** Reads the files in a range of directories, splitting the range in half until it spans one directory. */
+    private static class DirRangeTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<File> files;
+        private final int[] dirStarts;
+        private final int dirLo;
+        private final int dirHi;
+        private final ReadStrategy strategy;
+
+        DirRangeTask(final List<File> files, final int[] dirStarts, final int dirLo, final int dirHi,
+                final ReadStrategy strategy) {
+            this.files = files;
+            this.dirStarts = dirStarts;
+            this.dirLo = dirLo;
+            this.dirHi = dirHi;
+            this.strategy = strategy;
+        }
+
+        @Override
+        protected Long compute() {
+            if (dirHi - dirLo <= 1) {
+                // At most one directory -- split by file range
+                return dirHi == dirLo ? 0L
+                        : new FileRangeTask(files, dirStarts[dirLo], dirStarts[dirHi], strategy).compute();
+            }
+            final int dirMid = (dirLo + dirHi) >>> 1;
+            final DirRangeTask right = new DirRangeTask(files, dirStarts, dirMid, dirHi, strategy);
+            right.fork();
+            final long leftBytesRead = new DirRangeTask(files, dirStarts, dirLo, dirMid, strategy).compute();
+            return leftBytesRead + right.join();
+        }
+    }
+
+    /** Reads a range of files, splitting the range in half until it is small enough to read sequentially. */
+    private static class FileRangeTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<File> files;
+        private final int lo;
+        private final int hi;
+        private final ReadStrategy strategy;
+
+        FileRangeTask(final List<File> files, final int lo, final int hi, final ReadStrategy strategy) {
+            this.files = files;
+            this.lo = lo;
+            this.hi = hi;
+            this.strategy = strategy;
+        }
+
+        @Override
+        protected Long compute() {
+            if (hi - lo <= SEQUENTIAL_THRESHOLD) {
+                long totBytesRead = 0L;
+                for (int i = lo; i < hi; i++) {
+                    try {
+                        totBytesRead += strategy.read(files.get(i));
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+                return totBytesRead;
+            }
+            final int mid = (lo + hi) >>> 1;
+            final FileRangeTask right = new FileRangeTask(files, mid, hi, strategy);
+            right.fork();
+            final long leftBytesRead = new FileRangeTask(files, lo, mid, strategy).compute();
+            return leftBytesRead + right.join();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/** Reads a file by calling {@link #readAllBytes(InputStream, long, boolean)} on {@link Files#newInputStream}. */
+public class InputStreamReadStrategy implements ReadStrategy {
+    /** The default size of a file buffer. */
+    private static final int DEFAULT_BUFFER_SIZE = 16384;
+
+    /**
+     * The maximum size of a file buffer array. Eight bytes smaller than {@link Integer.MAX_VALUE}, since some VMs
+     * reserve header words in arrays.
+     */
+    private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+    /** The maximum initial buffer size. */
+    private static final int MAX_INITIAL_BUFFER_SIZE = 16 * 1024 * 1024;
+
+    /** If true, trust {@link File#length()} to be the exact file size. */
+    private final boolean sizeHintIsExact;
+
+    /** If true, copy the contents into an array of exactly the right size, if the buffer is oversized. */
+    private final boolean trimToSize;
+
+    /** Read files without trusting the file size hint, and trim the buffer to size. */
+    public InputStreamReadStrategy() {
+        this(false, true);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param sizeHintIsExact
+     *            If true, trust {@link File#length()} to be the exact file size.
+     * @param trimToSize
+     *            If true, copy the contents into an array of exactly the right size, if the buffer is oversized.
+     *            If false, consume the buffer directly as a {@link BufferSlice}.
+     */
+    public InputStreamReadStrategy(final boolean sizeHintIsExact, final boolean trimToSize) {
+        this.sizeHintIsExact = sizeHintIsExact;
+        this.trimToSize = trimToSize;
+    }
+
+    @Override
+    public String name() {
+        return "InputStream" + (sizeHintIsExact ? "Exact" : "") + (trimToSize ? "" : "Slice");
+    }
+
+    @Override
+    public int read(final File file, final ContentConsumer consumer) throws IOException {
+        final ReadEvents.FileOpen openEvent = new ReadEvents.FileOpen();
+        openEvent.begin();
+        try (InputStream is = Files.newInputStream(file.toPath())) {
+            openEvent.endAndCommit(file, name());
+            final ReadEvents.FileRead readEvent = new ReadEvents.FileRead();
+            readEvent.begin();
+            final long fileSize = file.length();
+            final BufferSlice contents = readAllBytes(is, fileSize, sizeHintIsExact);
+            final ByteBuffer contentsBuffer = trimToSize ? ByteBuffer.wrap(contents.toByteArray())
+                    : contents.asByteBuffer();
+            final int bytesRead = contentsBuffer.remaining();
+            readEvent.endAndCommit(file, name(), fileSize, bytesRead);
+            consumer.accept(contentsBuffer);
+            return bytesRead;
+        }
+    }
+
+    /**
+     * Read all the bytes in an {@link InputStream}.
+     *
+     * @param inputStream
+     *            The {@link InputStream}.
+     * @param fileSizeHint
+     *            The file size, if known, otherwise -1L.
+     * @param sizeHintIsExact
+     *            If true, the file size hint is trusted to be exact, so the buffer is allocated at exactly that size
+     *            (even beyond the max initial buffer size), and a one-byte read is used to probe for the end of the
+     *            stream once the buffer is full, rather than doubling the buffer and then trimming it back down.
+     * @return The contents of the {@link InputStream}, as a slice of a buffer that may be larger than the number
+     *         of bytes read.
+     * @throws IOException
+     *             If the contents could not be read.
+     */
+    static BufferSlice readAllBytes(final InputStream inputStream, final long fileSizeHint,
+            final boolean sizeHintIsExact) throws IOException {
+        if (fileSizeHint > MAX_BUFFER_SIZE) {
+            throw new IOException("InputStream is too large to read");
+        }
+        final int bufferSize = fileSizeHint < 1L
+                // If fileSizeHint is unknown, use default buffer size
+                ? DEFAULT_BUFFER_SIZE
+                : sizeHintIsExact
+                        // If fileSizeHint is exact, allocate exactly that size
+                        ? (int) fileSizeHint
+                        // Otherwise fileSizeHint is just a hint -- limit the max allocated buffer size, so that
+                        // invalid ZipEntry lengths do not become a memory allocation attack vector
+                        : Math.min((int) fileSizeHint, MAX_INITIAL_BUFFER_SIZE);
+        byte[] buf = new byte[bufferSize];
+
+        int bufLength = buf.length;
+        int totBytesRead = 0;
+        for (int bytesRead;;) {
+            // Fill buffer -- may fill more or fewer bytes than buffer size
+            while ((bytesRead = inputStream.read(buf, totBytesRead, bufLength - totBytesRead)) > 0) {
+                totBytesRead += bytesRead;
+            }
+            if (bytesRead < 0) {
+                // Reached end of stream
+                break;
+            }
+            // bytesRead == 0 => buffer is full
+            int probedByte = -1;
+            if (sizeHintIsExact && (probedByte = inputStream.read()) < 0) {
+                // Reached end of stream exactly at the end of the buffer -- no need to grow or trim the buffer
+                break;
+            }
+            // Grow buffer, avoiding overflow
+            if (bufLength <= MAX_BUFFER_SIZE - bufLength) {
+                bufLength = bufLength << 1;
+            } else {
+                if (bufLength == MAX_BUFFER_SIZE) {
+                    throw new IOException("InputStream too large to read");
+                }
+                bufLength = MAX_BUFFER_SIZE;
+            }
+            buf = Arrays.copyOf(buf, bufLength);
+            if (probedByte >= 0) {
+                // The size hint was wrong -- keep the probed byte, and continue reading
+                buf[totBytesRead++] = (byte) probedByte;
+            }
+        }
+        // Return buffer and number of bytes read, without trimming the buffer
+        return new BufferSlice(buf, 0, totBytesRead);
+    }
+}
@@ -0,0 +1,182 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A log-linear histogram of latencies in nanoseconds, in the style of HdrHistogram: values below 128 are counted
+ * exactly, and larger values are counted in buckets whose width is at most 1/64 of their lower bound, so that
+ * percentiles are accurate to within about 1.6%. Values of 2^40 ns (about 18 minutes) or more are counted in the
+ * highest bucket, but the maximum value is tracked exactly.
+ *
+ * <p>
+ * Recording is lock-free and allocation-free, so it can be done on every file read. To reduce contention, the
+ * counts are spread over stripes, which are merged when the histogram is read. This is not a per-worker histogram:
+ * a thread is assigned to a stripe by its thread id modulo the number of stripes, so any two threads whose ids
+ * collide share a stripe, and record into it with atomic updates. The threads of a pool usually have consecutive
+ * ids, so they get separate stripes if there are at least as many stripes as threads, but virtual threads (one per
+ * file) are spread over the stripes by id, regardless of which carrier they run on, and may contend with each
+ * other.
+ */
+public class LatencyHistogram {
+    /** The number of bits of precision within each power of two. */
+    private static final int SUB_BUCKET_BITS = 6;
+
+    /** The number of values below which each value has its own bucket. */
+    private static final int EXACT_LIMIT = 2 << SUB_BUCKET_BITS;
+
+    /** The highest value that does not share a bucket with all larger values. */
+    private static final long MAX_TRACKED_VALUE = (1L << 40) - 1;
+
+    /** The number of buckets in each stripe. */
+    private static final int NUM_BUCKETS = bucketIndex(MAX_TRACKED_VALUE) + 1;
+
+    /** The number of stripes, a power of two. */
+    private final int numStripes;
+
+    /** The counts, indexed by stripe * {@link #NUM_BUCKETS} + bucket index. */
+    private final AtomicLongArray counts;
+
+    /** The maximum value recorded in each stripe. */
+    private final AtomicLongArray maxValues;
+
+    /**
+     * Constructor.
+     *
+     * @param minStripes
+     *            The minimum number of stripes -- should be at least the number of concurrently recording threads,
+     *            to make stripe collisions unlikely. Rounded up to a power of two.
+     */
+    public LatencyHistogram(final int minStripes) {
+        numStripes = Integer.highestOneBit(Math.max(1, minStripes - 1)) << 1;
+        counts = new AtomicLongArray(numStripes * NUM_BUCKETS);
+        maxValues = new AtomicLongArray(numStripes);
+    }
+
+    /** Get the bucket index of a value. */
+    private static int bucketIndex(final long value) {
+        if (value < EXACT_LIMIT) {
+            return (int) Math.max(value, 0L);
+        }
+        final long clamped = Math.min(value, MAX_TRACKED_VALUE);
+        // Keep the top (SUB_BUCKET_BITS + 1) bits of the value
+        final int shift = 64 - Long.numberOfLeadingZeros(clamped) - (SUB_BUCKET_BITS + 1);
+        return (shift << SUB_BUCKET_BITS) + (int) (clamped >>> shift);
+    }
+
+    /** Get the highest value that is counted in a bucket. */
+    private static long highestValueInBucket(final int bucketIndex) {
+        if (bucketIndex < EXACT_LIMIT) {
+            return bucketIndex;
+        }
+        final int shift = (bucketIndex >>> SUB_BUCKET_BITS) - 1;
+        final long topBits = bucketIndex - ((long) shift << SUB_BUCKET_BITS);
+        return ((topBits + 1) << shift) - 1;
+    }
+
+    /**
+     * Record a latency, in the stripe of the current thread. Threads that share a stripe contend on its counters,
+     * but never block.
+     *
+     * @param nanos
+     *            The latency, in nanoseconds.
+     */
+    @SuppressWarnings("deprecation")
+    public void record(final long nanos) {
+        final int stripe = (int) Thread.currentThread().getId() & (numStripes - 1);
+        counts.getAndIncrement(stripe * NUM_BUCKETS + bucketIndex(nanos));
+        for (long max; nanos > (max = maxValues.get(stripe));) {
+            if (maxValues.compareAndSet(stripe, max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    /** Clear the histogram. Must not be called concurrently with {@link #record(long)}. */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0L);
+        }
+        for (int i = 0; i < maxValues.length(); i++) {
+            maxValues.set(i, 0L);
+        }
+    }
+
+    /**
+     * Merge the stripes of the histogram into a snapshot. Must not be called concurrently with
+     * {@link #record(long)}.
+     *
+     * @return The snapshot.
+     */
+    public Snapshot snapshot() {
+        final Snapshot snapshot = new Snapshot();
+        for (int stripe = 0; stripe < numStripes; stripe++) {
+            for (int i = 0; i < NUM_BUCKETS; i++) {
+                snapshot.counts[i] += counts.get(stripe * NUM_BUCKETS + i);
+            }
+            snapshot.maxValue = Math.max(snapshot.maxValue, maxValues.get(stripe));
+        }
+        for (final long count : snapshot.counts) {
+            snapshot.totalCount += count;
+        }
+        return snapshot;
+    }
+
+    /** The merged counts of a histogram, which can be combined with other snapshots. */
+    public static class Snapshot {
+        private final long[] counts = new long[NUM_BUCKETS];
+        private long totalCount;
+        private long maxValue;
+
+        /**
+         * Add the counts of another snapshot to this snapshot.
+         *
+         * @param other
+         *            The other snapshot.
+         */
+        public void add(final Snapshot other) {
+            for (int i = 0; i < NUM_BUCKETS; i++) {
+                counts[i] += other.counts[i];
+            }
+            totalCount += other.totalCount;
+            maxValue = Math.max(maxValue, other.maxValue);
+        }
+
+        /**
+         * Get the number of recorded values.
+         *
+         * @return The number of recorded values.
+         */
+        public long totalCount() {
+            return totalCount;
+        }
+
+        /**
+         * Get the maximum recorded value.
+         *
+         * @return The maximum value, in nanoseconds, or 0 if no values were recorded.
+         */
+        public long maxValue() {
+            return maxValue;
+        }
+
+        /**
+         * Get the value at a percentile.
+         *
+         * @param percentile
+         *            The percentile, between 0 and 100.
+         * @return The highest value in the bucket that contains the percentile (but no higher than the maximum
+         *         value), in nanoseconds, or 0 if no values were recorded.
+         */
+        public long valueAtPercentile(final double percentile) {
+            final long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * totalCount));
+            long cumulativeCount = 0L;
+            for (int i = 0; i < NUM_BUCKETS; i++) {
+                cumulativeCount += counts[i];
+                if (cumulativeCount >= rank) {
+                    return Math.min(highestValueInBucket(i), maxValue);
+                }
+            }
+            return maxValue;
+        }
+    }
+}
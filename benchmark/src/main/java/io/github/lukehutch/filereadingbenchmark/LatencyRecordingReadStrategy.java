@@ -0,0 +1,49 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.File;
+import java.io.IOException;
+
+/** Wraps a {@link ReadStrategy}, recording the latency of each successful file read in a histogram. */
+public class LatencyRecordingReadStrategy implements ReadStrategy {
+    /** The wrapped strategy. */
+    private final ReadStrategy strategy;
+
+    /** The histogram. */
+    private final LatencyHistogram histogram;
+
+    /**
+     * Constructor.
+     *
+     * @param strategy
+     *            The strategy to wrap.
+     * @param histogram
+     *            The histogram to record latencies in.
+     */
+    public LatencyRecordingReadStrategy(final ReadStrategy strategy, final LatencyHistogram histogram) {
+        this.strategy = strategy;
+        this.histogram = histogram;
+    }
+
+    @Override
+    public String name() {
+        return strategy.name();
+    }
+
+    @Override
+    public void setUp() throws IOException {
+        strategy.setUp();
+    }
+
+    @Override
+    public int read(final File file, final ContentConsumer consumer) throws IOException {
+        final long startTime = System.nanoTime();
+        final int bytesRead = strategy.read(file, consumer);
+        histogram.record(System.nanoTime() - startTime);
+        return bytesRead;
+    }
+
+    @Override
+    public void tearDown() throws IOException {
+        strategy.tearDown();
+    }
+}
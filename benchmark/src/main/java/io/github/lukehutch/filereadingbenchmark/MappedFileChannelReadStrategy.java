@@ -0,0 +1,38 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/** Reads a file by memory-mapping it with {@link FileChannel#map}, then copying the mapped buffer to an array. */
+public class MappedFileChannelReadStrategy implements ReadStrategy {
+    @Override
+    public String name() {
+        return "FileChannel";
+    }
+
+    @Override
+    public int read(final File file, final ContentConsumer consumer) throws IOException {
+        final ReadEvents.FileOpen openEvent = new ReadEvents.FileOpen();
+        openEvent.begin();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel fc = raf.getChannel()) {
+            openEvent.endAndCommit(file, name());
+            final ReadEvents.FileRead readEvent = new ReadEvents.FileRead();
+            readEvent.begin();
+            final long fileSize = fc.size();
+            final ReadEvents.MapAndLoad mapAndLoadEvent = new ReadEvents.MapAndLoad();
+            mapAndLoadEvent.begin();
+            final MappedByteBuffer buffer = fc.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            buffer.load();
+            mapAndLoadEvent.endAndCommit(file, fileSize);
+            final byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            readEvent.endAndCommit(file, name(), fileSize, bytes.length);
+            consumer.accept(ByteBuffer.wrap(bytes));
+            return bytes.length;
+        }
+    }
+}
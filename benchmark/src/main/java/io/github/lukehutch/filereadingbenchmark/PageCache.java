@@ -0,0 +1,242 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Evicts files from the OS page cache with {@code posix_fadvise(fd, 0, 0, POSIX_FADV_DONTNEED)}, so that the next
+ * read of the files has to fetch them from storage. This does not need root privileges (unlike writing to
+ * {@code /proc/sys/vm/drop_caches}), and only affects the given files. The kernel cannot drop pages that are still
+ * memory-mapped, so the {@link java.nio.MappedByteBuffer}s of earlier reads are garbage collected (which unmaps
+ * them) first.
+ *
+ * <p>
+ * The native functions are called through the Foreign Function and Memory API ({@code java.lang.foreign}), which is
+ * accessed reflectively, so that the benchmark can still be built and run on JDKs that predate it. Eviction is
+ * supported on JDK 21 and later, on platforms that have
+ * {@code posix_fadvise} (e.g. Linux, but not macOS). Run with {@code --enable-native-access=ALL-UNNAMED} to
+ * suppress the JDK's warning about native access.
+ */
+public final class PageCache {
+    /** The {@code open} flag for opening a file read-only. */
+    private static final int O_RDONLY = 0;
+
+    /** The {@code posix_fadvise} advice to drop the file's pages from the page cache. */
+    private static final int POSIX_FADV_DONTNEED = 4;
+
+    /** The maximum time to wait for the memory-mapped buffers to be unmapped, in milliseconds. */
+    private static final long UNMAP_TIMEOUT_MILLIS = 10_000L;
+
+    /** The buffer pool of the memory-mapped buffers, or null if there is none. */
+    private static final BufferPoolMXBean MAPPED_BUFFER_POOL = ManagementFactory
+            .getPlatformMXBeans(BufferPoolMXBean.class).stream().filter(pool -> pool.getName().equals("mapped"))
+            .findFirst().orElse(null);
+
+    /** The native functions and the FFM API methods, or null if eviction is not supported. */
+    private static final NativeAccess NATIVE_ACCESS = NativeAccess.load();
+
+    private PageCache() {
+    }
+
+    /** Reflective handles for the FFM API methods and the native functions. */
+    private static final class NativeAccess {
+        /** {@code Arena.ofConfined()}. */
+        Method arenaOfConfined;
+
+        /**
+         * {@code SegmentAllocator.allocateFrom(String)} (JDK 22 and later), or
+         * {@code SegmentAllocator.allocateUtf8String(String)} (JDK 21).
+         */
+        Method allocateString;
+
+        /** {@code Arena.close()}. */
+        Method arenaClose;
+
+        /** {@code int open(const char *path, int flags)}. */
+        MethodHandle open;
+
+        /** {@code int fdatasync(int fd)}. */
+        MethodHandle fdatasync;
+
+        /** {@code int posix_fadvise(int fd, off_t offset, off_t len, int advice)}. */
+        MethodHandle posixFadvise;
+
+        /** {@code int close(int fd)}. */
+        MethodHandle close;
+
+        /**
+         * Look up the FFM API methods, and link the native functions.
+         *
+         * @return The native access handles, or null if the FFM API or any of the native functions is unavailable.
+         */
+        static NativeAccess load() {
+            try {
+                final Class<?> linkerClass = Class.forName("java.lang.foreign.Linker");
+                final Class<?> linkerOptionClass = Class.forName("java.lang.foreign.Linker$Option");
+                final Class<?> symbolLookupClass = Class.forName("java.lang.foreign.SymbolLookup");
+                final Class<?> memorySegmentClass = Class.forName("java.lang.foreign.MemorySegment");
+                final Class<?> memoryLayoutClass = Class.forName("java.lang.foreign.MemoryLayout");
+                final Class<?> memoryLayoutArrayClass = Array.newInstance(memoryLayoutClass, 0).getClass();
+                final Class<?> functionDescriptorClass = Class.forName("java.lang.foreign.FunctionDescriptor");
+                final Class<?> valueLayoutClass = Class.forName("java.lang.foreign.ValueLayout");
+                final Class<?> arenaClass = Class.forName("java.lang.foreign.Arena");
+                final Class<?> segmentAllocatorClass = Class.forName("java.lang.foreign.SegmentAllocator");
+
+                final Object linker = linkerClass.getMethod("nativeLinker").invoke(null);
+                final Object defaultLookup = linkerClass.getMethod("defaultLookup").invoke(linker);
+                final Method find = symbolLookupClass.getMethod("find", String.class);
+                final Method functionDescriptorOf = functionDescriptorClass.getMethod("of", memoryLayoutClass,
+                        memoryLayoutArrayClass);
+                final Method downcallHandle = linkerClass.getMethod("downcallHandle", memorySegmentClass,
+                        functionDescriptorClass, Array.newInstance(linkerOptionClass, 0).getClass());
+                final Object intLayout = valueLayoutClass.getField("JAVA_INT").get(null);
+                final Object longLayout = valueLayoutClass.getField("JAVA_LONG").get(null);
+                final Object addressLayout = valueLayoutClass.getField("ADDRESS").get(null);
+
+                final NativeAccess nativeAccess = new NativeAccess();
+                nativeAccess.arenaOfConfined = arenaClass.getMethod("ofConfined");
+                try {
+                    nativeAccess.allocateString = segmentAllocatorClass.getMethod("allocateFrom", String.class);
+                } catch (final NoSuchMethodException e) {
+                    nativeAccess.allocateString = segmentAllocatorClass.getMethod("allocateUtf8String",
+                            String.class);
+                }
+                nativeAccess.arenaClose = arenaClass.getMethod("close");
+
+                // Link each function, by looking up its symbol, then creating a downcall handle for its signature
+                final Object[][] signatures = { //
+                        { "open", intLayout, addressLayout, intLayout }, //
+                        { "fdatasync", intLayout, intLayout }, //
+                        { "posix_fadvise", intLayout, intLayout, longLayout, longLayout, intLayout }, //
+                        { "close", intLayout, intLayout } };
+                final MethodHandle[] handles = new MethodHandle[signatures.length];
+                for (int i = 0; i < signatures.length; i++) {
+                    final Object[] signature = signatures[i];
+                    final Optional<?> symbol = (Optional<?>) find.invoke(defaultLookup, signature[0]);
+                    if (!symbol.isPresent()) {
+                        return null;
+                    }
+                    final Object argLayouts = Array.newInstance(memoryLayoutClass, signature.length - 2);
+                    for (int j = 2; j < signature.length; j++) {
+                        Array.set(argLayouts, j - 2, signature[j]);
+                    }
+                    final Object functionDescriptor = functionDescriptorOf.invoke(null, signature[1], argLayouts);
+                    handles[i] = (MethodHandle) downcallHandle.invoke(linker, symbol.get(), functionDescriptor,
+                            Array.newInstance(linkerOptionClass, 0));
+                }
+                nativeAccess.open = handles[0];
+                nativeAccess.fdatasync = handles[1];
+                nativeAccess.posixFadvise = handles[2];
+                nativeAccess.close = handles[3];
+                return nativeAccess;
+            } catch (final ReflectiveOperationException | RuntimeException e) {
+                // FFM API not available (before JDK 21), or native access denied
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Check whether page cache eviction is supported by this JDK and platform.
+     *
+     * @return True if page cache eviction is supported.
+     */
+    public static boolean isEvictionSupported() {
+        return NATIVE_ACCESS != null;
+    }
+
+    /**
+     * Unmap the memory-mapped buffers that are no longer referenced, by running the garbage collector until the
+     * mapped buffer pool is empty (the buffers are unmapped by a cleaner once they have been collected), or until
+     * {@link #UNMAP_TIMEOUT_MILLIS} has passed.
+     */
+    private static void unmapBuffers() {
+        if (MAPPED_BUFFER_POOL == null) {
+            return;
+        }
+        final long deadline = System.nanoTime() + UNMAP_TIMEOUT_MILLIS * 1_000_000L;
+        while (MAPPED_BUFFER_POOL.getCount() > 0L && System.nanoTime() < deadline) {
+            System.gc();
+            try {
+                // Give the cleaner thread time to unmap the collected buffers
+                Thread.sleep(10L);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Evict files from the page cache. Dirty pages are written back first, since the kernel only drops clean pages,
+     * and unreferenced memory-mapped buffers are unmapped first, since the kernel does not drop mapped pages. Pages
+     * that are still mapped stay cached, so whether the files were actually evicted can only be told by how much
+     * the next read fetches from storage.
+     *
+     * @param files
+     *            The files to evict.
+     * @throws IOException
+     *             If eviction is not supported, or a file could not be opened or evicted.
+     */
+    public static void evict(final List<File> files) throws IOException {
+        if (NATIVE_ACCESS == null) {
+            throw new IOException("Page cache eviction is not supported by this JDK or platform");
+        }
+        unmapBuffers();
+        try {
+            final Object arena = NATIVE_ACCESS.arenaOfConfined.invoke(null);
+            try {
+                for (final File file : files) {
+                    evict(file, NATIVE_ACCESS.allocateString.invoke(arena, file.getPath()));
+                }
+            } finally {
+                NATIVE_ACCESS.arenaClose.invoke(arena);
+            }
+        } catch (final InvocationTargetException e) {
+            throw new IOException("Could not evict files from the page cache", e.getCause());
+        } catch (final IllegalAccessException e) {
+            throw new IOException("Could not evict files from the page cache", e);
+        }
+    }
+
+    /**
+     * Evict a file from the page cache.
+     *
+     * @param file
+     *            The file.
+     * @param pathSegment
+     *            The NUL-terminated path of the file, in a native memory segment.
+     * @throws IOException
+     *             If the file could not be opened or evicted.
+     */
+    private static void evict(final File file, final Object pathSegment) throws IOException {
+        try {
+            final int fd = (int) NATIVE_ACCESS.open.invokeWithArguments(pathSegment, O_RDONLY);
+            if (fd < 0) {
+                throw new IOException("Could not open " + file);
+            }
+            try {
+                // posix_fadvise returns an error number, rather than setting errno
+                if ((int) NATIVE_ACCESS.fdatasync.invokeWithArguments(fd) != 0
+                        || (int) NATIVE_ACCESS.posixFadvise.invokeWithArguments(fd, 0L, 0L,
+                                POSIX_FADV_DONTNEED) != 0) {
+                    throw new IOException("Could not evict " + file + " from the page cache");
+                }
+            } finally {
+                NATIVE_ACCESS.close.invokeWithArguments(fd);
+            }
+        } catch (final IOException | RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new IOException("Could not evict " + file + " from the page cache", e);
+        }
+    }
+}
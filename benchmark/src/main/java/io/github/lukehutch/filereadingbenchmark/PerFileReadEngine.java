@@ -0,0 +1,62 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/** Submits a separate task to the executor for each file. */
+public class PerFileReadEngine implements ReadEngine {
+    /** The executor. */
+    private final ExecutorService executor;
+
+    /** The number of threads in the executor, or 0 if the executor starts a new thread for each task. */
+    private final int numThreads;
+
+    /** The label. */
+    private final String label;
+
+    /**
+     * Constructor.
+     *
+     * @param executor
+     *            The executor.
+     * @param numThreads
+     *            The number of threads in the executor, or 0 if the executor starts a new thread for each task.
+     * @param label
+     *            The label.
+     */
+    public PerFileReadEngine(final ExecutorService executor, final int numThreads, final String label) {
+        this.executor = executor;
+        this.numThreads = numThreads;
+        this.label = label;
+    }
+
+    @Override
+    public String label() {
+        return label;
+    }
+
+    @Override
+    public int numThreads() {
+        return numThreads;
+    }
+
+    @Override
+    public long readAll(final List<File> files, final ReadStrategy strategy) {
+        final List<Future<Integer>> futures = files.stream().map(f -> executor.submit(() -> strategy.read(f)))
+                .collect(Collectors.toList());
+        long totBytesRead = 0L;
+        for (final Future<Integer> future : futures) {
+            // Barrier
+            try {
+                totBytesRead += future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+        return totBytesRead;
+    }
+}
@@ -0,0 +1,134 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Reads a file with {@link FileChannel#read(ByteBuffer)} into a direct {@link ByteBuffer} that is taken from a
+ * shared pool, and returned to the pool after the read, so that no buffer is allocated and no bytes are copied into
+ * the Java heap in the steady state. The pool is not keyed by thread, so this also holds when each file is read by a
+ * new (virtual) thread: the pool only needs as many buffers as there are concurrent reads. Buffers only grow, so
+ * once the pooled buffers are large enough for the largest file, they are never reallocated.
+ *
+ * <p>
+ * The pool is an array of slots, which are taken and filled with atomic operations, so threads do not serialize on
+ * a lock. Each thread starts its search for a buffer (or for an empty slot) at a slot chosen by its thread id, so a
+ * platform thread usually takes back the buffer it returned, from a slot that no other thread touches. The array
+ * doubles in size whenever a buffer is returned to a full pool, so it grows to fit the peak number of concurrent
+ * reads, whatever the engine.
+ */
+public class PooledDirectBufferReadStrategy implements ReadStrategy {
+    /** The initial size of each buffer. */
+    private static final int INITIAL_BUFFER_SIZE = 16384;
+
+    /** The maximum size of a direct buffer. */
+    private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+    /** The maximum number of slots in the pool, beyond which buffers returned to a full pool are dropped. */
+    private static final int MAX_POOL_SLOTS = 1 << 16;
+
+    /** The slots of the pool, each holding an idle buffer, or null. Replaced by a larger array when full. */
+    private final AtomicReference<AtomicReferenceArray<ByteBuffer>> bufferPool = new AtomicReference<>(
+            new AtomicReferenceArray<>(Integer.highestOneBit(Runtime.getRuntime().availableProcessors()) * 4));
+
+    @Override
+    public String name() {
+        return "DirectBuffer";
+    }
+
+    /**
+     * Take a buffer from the pool, allocating a new buffer if the pool is empty, or replacing the buffer with a
+     * larger one if it is smaller than the required size. Return the buffer to the pool with
+     * {@link #returnBuffer(ByteBuffer)}.
+     *
+     * @param size
+     *            The required size.
+     * @return The cleared buffer.
+     * @throws IOException
+     *             If the required size is too large.
+     */
+    private ByteBuffer takeBuffer(final long size) throws IOException {
+        if (size > MAX_BUFFER_SIZE) {
+            throw new IOException("File is too large to read");
+        }
+        ByteBuffer buf = null;
+        final AtomicReferenceArray<ByteBuffer> slots = bufferPool.get();
+        final int mask = slots.length() - 1;
+        final int firstSlot = (int) Thread.currentThread().getId();
+        for (int i = 0; i < slots.length() && buf == null; i++) {
+            final int slot = (firstSlot + i) & mask;
+            // Only write to slots that hold a buffer, so that empty slots are not contended
+            if (slots.get(slot) != null) {
+                buf = slots.getAndSet(slot, null);
+            }
+        }
+        if (buf == null) {
+            buf = ByteBuffer.allocateDirect((int) Math.max(size, INITIAL_BUFFER_SIZE));
+        } else if (buf.capacity() < size) {
+            // Grow geometrically, so that a sweep of increasing file sizes does not reallocate for every file
+            buf = ByteBuffer.allocateDirect((int) Math.min(Math.max(size, 2L * buf.capacity()), MAX_BUFFER_SIZE));
+        }
+        buf.clear();
+        return buf;
+    }
+
+    /**
+     * Return a buffer to the pool, growing the pool if it is full, or dropping the buffer if the pool has reached
+     * its maximum size.
+     *
+     * @param buf
+     *            The buffer.
+     */
+    private void returnBuffer(final ByteBuffer buf) {
+        final AtomicReferenceArray<ByteBuffer> slots = bufferPool.get();
+        final int mask = slots.length() - 1;
+        final int firstSlot = (int) Thread.currentThread().getId();
+        for (int i = 0; i < slots.length(); i++) {
+            final int slot = (firstSlot + i) & mask;
+            if (slots.get(slot) == null && slots.compareAndSet(slot, null, buf)) {
+                return;
+            }
+        }
+        if (slots.length() < MAX_POOL_SLOTS) {
+            // Move the idle buffers to a larger array, emptying each slot atomically, so that no buffer can be taken
+            // from both arrays. Buffers returned to the old array after it has been emptied are dropped, as are the
+            // buffers of this thread if another thread grows the pool at the same time.
+            final AtomicReferenceArray<ByteBuffer> grownSlots = new AtomicReferenceArray<>(slots.length() * 2);
+            for (int slot = 0; slot < slots.length(); slot++) {
+                grownSlots.set(slot, slots.getAndSet(slot, null));
+            }
+            grownSlots.set(slots.length() + (firstSlot & mask), buf);
+            bufferPool.compareAndSet(slots, grownSlots);
+        }
+    }
+
+    @Override
+    public int read(final File file, final ContentConsumer consumer) throws IOException {
+        final ReadEvents.FileOpen openEvent = new ReadEvents.FileOpen();
+        openEvent.begin();
+        try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            openEvent.endAndCommit(file, name());
+            final ReadEvents.FileRead readEvent = new ReadEvents.FileRead();
+            readEvent.begin();
+            final long fileSize = fc.size();
+            final ByteBuffer buf = takeBuffer(fileSize);
+            try {
+                buf.limit((int) fileSize);
+                // Read until the buffer is full -- the file may be truncated while it is being read
+                while (buf.hasRemaining() && fc.read(buf) >= 0) {
+                }
+                readEvent.endAndCommit(file, name(), fileSize, buf.position());
+                buf.flip();
+                consumer.accept(buf);
+                return buf.limit();
+            } finally {
+                returnBuffer(buf);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * The cumulative I/O counters of some of the threads of this process, from {@code /proc/self/task/<tid>/io} (Linux
+ * only).
+ */
+public final class ProcIo {
+    /** The number of read syscalls (read, pread, readv etc.). */
+    public final long readSyscalls;
+
+    /**
+     * The number of bytes fetched from the storage layer, which excludes reads served from the page cache (and
+     * includes pages loaded by faults on memory-mapped files).
+     */
+    public final long storageReadBytes;
+
+    private ProcIo(final long readSyscalls, final long storageReadBytes) {
+        this.readSyscalls = readSyscalls;
+        this.storageReadBytes = storageReadBytes;
+    }
+
+    /**
+     * Read the counters of some of the threads of the process, summed over those threads.
+     *
+     * @param threadDirs
+     *            The {@code /proc/self/task/<tid>} directories of the threads, from
+     *            {@link ProcStat#threadDirs(String...)}.
+     * @return The counters, or null if the {@code io} file of a thread could not be parsed, or if the kernel was
+     *         built without task I/O accounting.
+     */
+    public static ProcIo readThreads(final List<File> threadDirs) {
+        long readSyscalls = 0L;
+        long storageReadBytes = 0L;
+        for (final File threadDir : threadDirs) {
+            final File ioFile = new File(threadDir, "io");
+            final String io;
+            try {
+                io = new String(Files.readAllBytes(ioFile.toPath()), StandardCharsets.UTF_8);
+            } catch (final IOException e) {
+                if (!ioFile.exists()) {
+                    // The thread terminated after its directory was found
+                    continue;
+                }
+                return null;
+            }
+            final ProcIo threadIo = parse(io);
+            if (threadIo == null) {
+                return null;
+            }
+            readSyscalls += threadIo.readSyscalls;
+            storageReadBytes += threadIo.storageReadBytes;
+        }
+        return new ProcIo(readSyscalls, storageReadBytes);
+    }
+
+    /**
+     * Parse the contents of an {@code io} file.
+     *
+     * @param io
+     *            The contents of the file.
+     * @return The counters, or null if the contents could not be parsed.
+     */
+    private static ProcIo parse(final String io) {
+        long readSyscalls = -1L;
+        long storageReadBytes = -1L;
+        // Format: one "name: value" line per counter
+        for (final String line : io.split("\n")) {
+            final int colonIdx = line.indexOf(':');
+            if (colonIdx < 0) {
+                continue;
+            }
+            final String name = line.substring(0, colonIdx);
+            try {
+                if (name.equals("syscr")) {
+                    readSyscalls = Long.parseLong(line.substring(colonIdx + 1).trim());
+                } else if (name.equals("read_bytes")) {
+                    storageReadBytes = Long.parseLong(line.substring(colonIdx + 1).trim());
+                }
+            } catch (final NumberFormatException e) {
+                return null;
+            }
+        }
+        return readSyscalls < 0L || storageReadBytes < 0L ? null : new ProcIo(readSyscalls, storageReadBytes);
+    }
+}
@@ -0,0 +1,146 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The cumulative CPU time and page fault counters of this process, from {@code /proc/self/stat}, or of some of its
+ * threads, from {@code /proc/self/task/<tid>/stat} (Linux only).
+ */
+public final class ProcStat {
+    /** The units of the CPU times in {@code /proc/self/stat} (USER_HZ, which is 100 on all Linux platforms). */
+    static final long NANOS_PER_CLOCK_TICK = 1_000_000_000L / 100L;
+
+    /** The CPU time that the process has spent in user mode, in nanoseconds, at clock tick resolution. */
+    public final long userNanos;
+
+    /** The CPU time that the process has spent in kernel mode, in nanoseconds, at clock tick resolution. */
+    public final long systemNanos;
+
+    /** The number of page faults that did not require loading a page from storage. */
+    public final long minorFaults;
+
+    /** The number of page faults that required loading a page from storage. */
+    public final long majorFaults;
+
+    private ProcStat(final long userNanos, final long systemNanos, final long minorFaults,
+            final long majorFaults) {
+        this.userNanos = userNanos;
+        this.systemNanos = systemNanos;
+        this.minorFaults = minorFaults;
+        this.majorFaults = majorFaults;
+    }
+
+    /**
+     * Read the counters of the process.
+     *
+     * @return The counters, or null if {@code /proc/self/stat} could not be read or parsed (e.g. if not running on
+     *         Linux).
+     */
+    public static ProcStat read() {
+        final String stat;
+        try {
+            stat = new String(Files.readAllBytes(Paths.get("/proc/self/stat")), StandardCharsets.UTF_8);
+        } catch (final IOException e) {
+            return null;
+        }
+        return parse(stat);
+    }
+
+    /**
+     * Find the {@code /proc/self/task/<tid>} directories of the threads of the process whose names start with one
+     * of the given prefixes. The name of a thread is its native name, which the JVM sets from the Java thread name
+     * when the thread is started, truncated to 15 characters.
+     *
+     * @param namePrefixes
+     *            The thread name prefixes, which should be no longer than 15 characters.
+     * @return The directories of the threads, or null if {@code /proc/self/task} could not be read (e.g. if not
+     *         running on Linux).
+     */
+    public static List<File> threadDirs(final String... namePrefixes) {
+        final File[] taskDirs = new File("/proc/self/task").listFiles();
+        if (taskDirs == null) {
+            return null;
+        }
+        final List<File> threadDirs = new ArrayList<>();
+        for (final File taskDir : taskDirs) {
+            final String comm;
+            try {
+                comm = new String(Files.readAllBytes(new File(taskDir, "comm").toPath()), StandardCharsets.UTF_8);
+            } catch (final IOException e) {
+                // The thread terminated after the directory was listed
+                continue;
+            }
+            for (final String namePrefix : namePrefixes) {
+                if (comm.startsWith(namePrefix)) {
+                    threadDirs.add(taskDir);
+                    break;
+                }
+            }
+        }
+        return threadDirs;
+    }
+
+    /**
+     * Read the counters of some of the threads of the process, summed over those threads. The user and system CPU
+     * times of each thread are read together, from the same file.
+     *
+     * @param threadDirs
+     *            The {@code /proc/self/task/<tid>} directories of the threads, from {@link #threadDirs(String...)}.
+     * @return The counters, or null if the {@code stat} file of a thread could not be parsed.
+     */
+    public static ProcStat readThreads(final List<File> threadDirs) {
+        long userNanos = 0L;
+        long systemNanos = 0L;
+        long minorFaults = 0L;
+        long majorFaults = 0L;
+        for (final File threadDir : threadDirs) {
+            final String stat;
+            try {
+                stat = new String(Files.readAllBytes(new File(threadDir, "stat").toPath()), StandardCharsets.UTF_8);
+            } catch (final IOException e) {
+                // The thread terminated after its directory was found
+                continue;
+            }
+            final ProcStat threadStat = parse(stat);
+            if (threadStat == null) {
+                return null;
+            }
+            userNanos += threadStat.userNanos;
+            systemNanos += threadStat.systemNanos;
+            minorFaults += threadStat.minorFaults;
+            majorFaults += threadStat.majorFaults;
+        }
+        return new ProcStat(userNanos, systemNanos, minorFaults, majorFaults);
+    }
+
+    /**
+     * Parse the contents of a {@code stat} file.
+     *
+     * @param stat
+     *            The contents of the file.
+     * @return The counters, or null if the contents could not be parsed.
+     */
+    private static ProcStat parse(final String stat) {
+        // Format: pid (comm) state ppid ... -- comm may contain spaces and parentheses, so split after the last ')'
+        final int commEnd = stat.lastIndexOf(')');
+        if (commEnd < 0) {
+            return null;
+        }
+        final String[] fields = stat.substring(commEnd + 1).trim().split(" ");
+        try {
+            // fields[0] is field 3 (state) in proc(5); minflt is field 10, majflt is field 12, utime is field 14
+            // and stime is field 15
+            return new ProcStat(Long.parseLong(fields[14 - 3]) * NANOS_PER_CLOCK_TICK,
+                    Long.parseLong(fields[15 - 3]) * NANOS_PER_CLOCK_TICK, Long.parseLong(fields[10 - 3]),
+                    Long.parseLong(fields[12 - 3]));
+        } catch (final NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+}
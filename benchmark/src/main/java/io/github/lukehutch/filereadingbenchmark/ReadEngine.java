@@ -0,0 +1,45 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * A way of dispatching the reads of a list of files to a set of threads. Read failures are reported, but do not
+ * stop the remaining files from being read.
+ */
+public interface ReadEngine {
+    /**
+     * The label of the engine, used as the column heading suffix.
+     *
+     * @return The label of the engine.
+     */
+    String label();
+
+    /**
+     * The number of threads that the files are read on.
+     *
+     * @return The number of threads, or 0 if each file is read on its own thread.
+     */
+    int numThreads();
+
+    /**
+     * Called before the timed passes over a list of files, outside the measured time, so that the engine can
+     * precompute anything that depends only on the list (e.g. the directory boundaries).
+     *
+     * @param files
+     *            The files that will be passed to {@link #readAll(List, ReadStrategy)}.
+     */
+    default void prepare(final List<File> files) {
+    }
+
+    /**
+     * Read all the files using the given strategy, and wait for all reads to complete.
+     *
+     * @param files
+     *            The files to read.
+     * @param strategy
+     *            The {@link ReadStrategy}.
+     * @return The total number of bytes read.
+     */
+    long readAll(List<File> files, ReadStrategy strategy);
+}
@@ -0,0 +1,173 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.File;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events emitted by the read strategies and the benchmark runner. Record a run with
+ * {@code -XX:StartFlightRecording=filename=run.jfr}, then open the recording in JDK Mission Control, or print the
+ * events with {@code jfr print --categories FileReadingBenchmark run.jfr}.
+ *
+ * <p>
+ * Each event records the thread that emitted it and its duration. Use the events with the pattern
+ * {@code event.begin(); ...; event.end(); if (event.shouldCommit()) { (set fields); event.commit(); }}, so that
+ * when the event is disabled, the event object is eliminated by escape analysis, and its fields are never
+ * computed. The file events have an {@code endAndCommit} method that does this.
+ */
+public final class ReadEvents {
+    /** The category of all the events. */
+    private static final String CATEGORY = "FileReadingBenchmark";
+
+    private ReadEvents() {
+    }
+
+    /** Opening a file for reading. */
+    @Name("io.github.lukehutch.filereadingbenchmark.FileOpen")
+    @Label("File Open")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class FileOpen extends Event {
+        /** The path of the file. */
+        @Label("Path")
+        public String path;
+
+        /** The read strategy. */
+        @Label("Strategy")
+        public String strategy;
+
+        /**
+         * End the event, and commit it if it is enabled and passes its threshold.
+         *
+         * @param file
+         *            The file.
+         * @param strategyName
+         *            The name of the read strategy.
+         */
+        public void endAndCommit(final File file, final String strategyName) {
+            end();
+            if (shouldCommit()) {
+                path = file.getPath();
+                strategy = strategyName;
+                commit();
+            }
+        }
+    }
+
+    /** Reading the contents of an open file. */
+    @Name("io.github.lukehutch.filereadingbenchmark.FileRead")
+    @Label("File Read")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class FileRead extends Event {
+        /** The path of the file. */
+        @Label("Path")
+        public String path;
+
+        /** The read strategy. */
+        @Label("Strategy")
+        public String strategy;
+
+        /** The size of the file. */
+        @Label("File Size")
+        @DataAmount(DataAmount.BYTES)
+        public long fileSize;
+
+        /** The number of bytes read. */
+        @Label("Bytes Read")
+        @DataAmount(DataAmount.BYTES)
+        public long bytesRead;
+
+        /**
+         * End the event, and commit it if it is enabled and passes its threshold.
+         *
+         * @param file
+         *            The file.
+         * @param strategyName
+         *            The name of the read strategy.
+         * @param size
+         *            The size of the file.
+         * @param numBytesRead
+         *            The number of bytes read.
+         */
+        public void endAndCommit(final File file, final String strategyName, final long size,
+                final long numBytesRead) {
+            end();
+            if (shouldCommit()) {
+                path = file.getPath();
+                strategy = strategyName;
+                fileSize = size;
+                bytesRead = numBytesRead;
+                commit();
+            }
+        }
+    }
+
+    /** Memory-mapping a file and loading the mapped pages into physical memory. */
+    @Name("io.github.lukehutch.filereadingbenchmark.MapAndLoad")
+    @Label("Map And Load")
+    @Description("FileChannel.map followed by MappedByteBuffer.load, which faults in every page of the mapping")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class MapAndLoad extends Event {
+        /** The path of the file. */
+        @Label("Path")
+        public String path;
+
+        /** The size of the mapping. */
+        @Label("Mapped Size")
+        @DataAmount(DataAmount.BYTES)
+        public long mappedSize;
+
+        /**
+         * End the event, and commit it if it is enabled and passes its threshold.
+         *
+         * @param file
+         *            The file.
+         * @param size
+         *            The size of the mapping.
+         */
+        public void endAndCommit(final File file, final long size) {
+            end();
+            if (shouldCommit()) {
+                path = file.getPath();
+                mappedSize = size;
+                commit();
+            }
+        }
+    }
+
+    /** One pass of a read engine over all the files of a dataset. */
+    @Name("io.github.lukehutch.filereadingbenchmark.BatchComplete")
+    @Label("Batch Complete")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class BatchComplete extends Event {
+        /** The read strategy. */
+        @Label("Strategy")
+        public String strategy;
+
+        /** The engine label. */
+        @Label("Engine")
+        public String engine;
+
+        /** The pass index -- negative for warmup passes. */
+        @Label("Pass")
+        public int pass;
+
+        /** The number of files in the dataset. */
+        @Label("Files")
+        public int numFiles;
+
+        /** The total number of bytes read. */
+        @Label("Bytes Read")
+        @DataAmount(DataAmount.BYTES)
+        public long bytesRead;
+    }
+}
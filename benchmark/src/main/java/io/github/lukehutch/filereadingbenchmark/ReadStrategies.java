@@ -0,0 +1,37 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** The registry of {@link ReadStrategy} implementations that are compared by the benchmark, in column order. */
+public final class ReadStrategies {
+    /** All registered strategies. */
+    public static final List<ReadStrategy> ALL = Collections.unmodifiableList(Arrays.asList( //
+            new InputStreamReadStrategy(), //
+            new InputStreamReadStrategy(/* sizeHintIsExact = */ true, /* trimToSize = */ true), //
+            new InputStreamReadStrategy(/* sizeHintIsExact = */ false, /* trimToSize = */ false), //
+            new MappedFileChannelReadStrategy(), //
+            new PooledDirectBufferReadStrategy()));
+
+    private ReadStrategies() {
+    }
+
+    /**
+     * Find a registered strategy by name.
+     *
+     * @param name
+     *            The name of the strategy.
+     * @return The strategy.
+     * @throws IllegalArgumentException
+     *             If there is no strategy with the given name.
+     */
+    public static ReadStrategy byName(final String name) {
+        for (final ReadStrategy strategy : ALL) {
+            if (strategy.name().equals(name)) {
+                return strategy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown read strategy: " + name);
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A technique for reading the entire contents of a file. The same instance is used concurrently by all the worker
+ * threads of a run, so implementations must be thread-safe.
+ */
+public interface ReadStrategy {
+    /**
+     * The name of the strategy, used as the column heading prefix.
+     *
+     * @return The name of the strategy.
+     */
+    String name();
+
+    /**
+     * Called before each timed run of this strategy.
+     *
+     * @throws IOException
+     *             If setup failed.
+     */
+    default void setUp() throws IOException {
+    }
+
+    /**
+     * Read the entire contents of a file, ignoring the contents.
+     *
+     * @param file
+     *            The file to read.
+     * @return The number of bytes read.
+     * @throws IOException
+     *             If the file could not be read.
+     */
+    default int read(final File file) throws IOException {
+        return read(file, ContentConsumer.IGNORE);
+    }
+
+    /**
+     * Read the entire contents of a file, and pass the contents to a consumer.
+     *
+     * @param file
+     *            The file to read.
+     * @param consumer
+     *            The consumer of the contents.
+     * @return The number of bytes read.
+     * @throws IOException
+     *             If the file could not be read.
+     */
+    int read(File file, ContentConsumer consumer) throws IOException;
+
+    /**
+     * Called after each timed run of this strategy, even if the run failed.
+     *
+     * @throws IOException
+     *             If teardown failed.
+     */
+    default void tearDown() throws IOException {
+    }
+}
@@ -0,0 +1,295 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A sample of the JVM's cumulative resource usage counters, or the difference between two samples. Sample with
+ * {@link #sampleBefore()} and {@link #sampleAfter()} around a pass, then call {@link #since(ResourceUsage)} to get
+ * the resources used by the pass.
+ *
+ * <p>
+ * The allocation counter, the thread CPU times, the page fault counters and the I/O counters are summed over the
+ * live worker threads, i.e. the threads whose names start with {@link #WORKER_THREAD_NAME_PREFIX}, and the carrier
+ * threads of virtual threads, so the work of the thread that takes the samples is not counted. Work done by
+ * virtual threads is counted against their carrier threads, and work done by threads that terminated between the
+ * two samples is not counted. The process CPU times also include the JVM's own threads (e.g. the GC and JIT
+ * compiler threads).
+ */
+public final class ResourceUsage {
+    /** The name prefix of the worker threads of the engines, whose CPU times are counted. */
+    public static final String WORKER_THREAD_NAME_PREFIX = "reader-";
+
+    /**
+     * The name prefix of the carrier threads of the default virtual thread scheduler, which is also the prefix of
+     * the threads of any other {@link java.util.concurrent.ForkJoinPool} that does not name its threads.
+     */
+    private static final String CARRIER_THREAD_NAME_PREFIX = "ForkJoinPool-";
+
+    /** The thread MXBean. */
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    /** The thread MXBean, or null if per-thread allocation counting is not supported by this JVM. */
+    private static final com.sun.management.ThreadMXBean ALLOCATION_MX_BEAN = allocationCountingThreadMXBean();
+
+    /**
+     * The collectors whose collections are stop-the-world pauses. Excludes the beans that count concurrent cycles
+     * (e.g. "G1 Concurrent GC" and "ZGC Cycles", or "ZGC Major Cycles" with generational ZGC), whose collection
+     * time is mostly spent concurrently with the application, and whose pauses are counted by the corresponding
+     * pause beans ("ZGC Pauses", or the G1 young and old generation beans).
+     */
+    private static final List<GarbageCollectorMXBean> PAUSE_GC_MX_BEANS = ManagementFactory
+            .getGarbageCollectorMXBeans().stream()
+            .filter(gcMXBean -> !gcMXBean.getName().contains("Cycles") && !gcMXBean.getName().contains("Concurrent"))
+            .collect(Collectors.toList());
+
+    /** True if per-thread CPU time measurement is supported and enabled. */
+    private static final boolean THREAD_CPU_TIME_ENABLED = enableThreadCpuTime();
+
+    /** The number of bytes allocated on the heap by the worker threads, or -1 if unknown. */
+    public final long allocatedBytes;
+
+    /** The CPU time of the worker threads, in nanoseconds (from {@link ThreadMXBean}), or -1 if unknown. */
+    public final long cpuNanos;
+
+    /**
+     * The CPU time spent in user mode by the worker threads, in nanoseconds, at clock tick resolution, or -1 if
+     * unknown.
+     */
+    public final long userCpuNanos;
+
+    /**
+     * The CPU time spent in kernel mode by the worker threads, in nanoseconds, at clock tick resolution, or -1 if
+     * unknown.
+     */
+    public final long systemCpuNanos;
+
+    /**
+     * The CPU time spent in user mode by the whole process, in nanoseconds, at clock tick resolution, or -1 if
+     * unknown.
+     */
+    public final long processUserNanos;
+
+    /**
+     * The CPU time spent in kernel mode by the whole process, in nanoseconds, at clock tick resolution, or -1 if
+     * unknown.
+     */
+    public final long processSystemNanos;
+
+    /** The number of minor page faults of the worker threads, or -1 if unknown. */
+    public final long minorFaults;
+
+    /** The number of major page faults (which loaded a page from storage) of the worker threads, or -1 if unknown. */
+    public final long majorFaults;
+
+    /** The number of read syscalls made by the worker threads, or -1 if unknown. */
+    public final long readSyscalls;
+
+    /** The number of bytes fetched from storage (not the page cache) by the worker threads, or -1 if unknown. */
+    public final long storageReadBytes;
+
+    /** The number of garbage collection pauses, summed over all pause collectors. */
+    public final long gcPauses;
+
+    /** The accumulated garbage collection pause time in milliseconds, summed over all pause collectors. */
+    public final long gcPauseMillis;
+
+    private ResourceUsage(final long allocatedBytes, final long cpuNanos, final long userCpuNanos,
+            final long systemCpuNanos, final long processUserNanos, final long processSystemNanos,
+            final long minorFaults, final long majorFaults, final long readSyscalls, final long storageReadBytes,
+            final long gcPauses, final long gcPauseMillis) {
+        this.allocatedBytes = allocatedBytes;
+        this.cpuNanos = cpuNanos;
+        this.userCpuNanos = userCpuNanos;
+        this.systemCpuNanos = systemCpuNanos;
+        this.processUserNanos = processUserNanos;
+        this.processSystemNanos = processSystemNanos;
+        this.minorFaults = minorFaults;
+        this.majorFaults = majorFaults;
+        this.readSyscalls = readSyscalls;
+        this.storageReadBytes = storageReadBytes;
+        this.gcPauses = gcPauses;
+        this.gcPauseMillis = gcPauseMillis;
+    }
+
+    /**
+     * Get the thread MXBean, and enable per-thread allocation counting.
+     *
+     * @return The thread MXBean, or null if per-thread allocation counting is not supported.
+     */
+    private static com.sun.management.ThreadMXBean allocationCountingThreadMXBean() {
+        if (!(THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        final com.sun.management.ThreadMXBean allocationCountingThreadMXBean = //
+                (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+        if (!allocationCountingThreadMXBean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        try {
+            allocationCountingThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+        } catch (final UnsupportedOperationException | SecurityException e) {
+            return null;
+        }
+        return allocationCountingThreadMXBean;
+    }
+
+    /**
+     * Enable per-thread CPU time measurement.
+     *
+     * @return True if per-thread CPU time measurement is supported and enabled.
+     */
+    private static boolean enableThreadCpuTime() {
+        if (!THREAD_MX_BEAN.isThreadCpuTimeSupported()) {
+            return false;
+        }
+        try {
+            THREAD_MX_BEAN.setThreadCpuTimeEnabled(true);
+        } catch (final UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check whether a thread is a worker thread, whose CPU times are counted.
+     *
+     * @param threadName
+     *            The name of the thread.
+     * @return True if the thread is a worker thread, or a carrier thread of virtual threads.
+     */
+    private static boolean isWorkerThread(final String threadName) {
+        return threadName.startsWith(WORKER_THREAD_NAME_PREFIX) || threadName.startsWith(CARRIER_THREAD_NAME_PREFIX);
+    }
+
+    /**
+     * Sum the non-negative elements of an array of per-thread counters.
+     *
+     * @param perThreadValues
+     *            The per-thread counter values, which are -1 for threads that terminated after their ids were
+     *            obtained.
+     * @return The sum.
+     */
+    private static long sumPerThread(final long[] perThreadValues) {
+        long sum = 0L;
+        for (final long value : perThreadValues) {
+            if (value > 0L) {
+                sum += value;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Get the ids of the live worker threads.
+     *
+     * @return The thread ids.
+     */
+    private static long[] workerThreadIds() {
+        // A ThreadInfo is null if its thread has terminated
+        return Arrays.stream(THREAD_MX_BEAN.getThreadInfo(THREAD_MX_BEAN.getAllThreadIds()))
+                .filter(threadInfo -> threadInfo != null && isWorkerThread(threadInfo.getThreadName()))
+                .mapToLong(ThreadInfo::getThreadId).toArray();
+    }
+
+    /**
+     * Sample the current resource usage counters before a pass. Should be called while the engine's worker threads
+     * are alive (i.e. before the thread pools are shut down).
+     *
+     * @return The sample.
+     */
+    public static ResourceUsage sampleBefore() {
+        return sample(true);
+    }
+
+    /**
+     * Sample the current resource usage counters after a pass. Should be called while the engine's worker threads
+     * are alive (i.e. before the thread pools are shut down).
+     *
+     * @return The sample.
+     */
+    public static ResourceUsage sampleAfter() {
+        return sample(false);
+    }
+
+    /**
+     * Sample the current resource usage counters. All the counters except the process CPU times are per worker
+     * thread, so the work of the sampling thread is not counted in them. Reading the {@code /proc} files of the
+     * worker threads takes CPU time, so the process CPU times are read last before a pass, and first after a pass,
+     * so that the rest of the sampling is outside the interval between the two samples.
+     *
+     * @param beforePass
+     *            True if the sample is taken before the pass, false if it is taken after the pass.
+     * @return The sample.
+     */
+    private static ResourceUsage sample(final boolean beforePass) {
+        final ProcStat procStatAfterPass = beforePass ? null : ProcStat.read();
+        final long[] workerThreadIds = workerThreadIds();
+        final long allocatedBytes = ALLOCATION_MX_BEAN == null ? -1L
+                : sumPerThread(ALLOCATION_MX_BEAN.getThreadAllocatedBytes(workerThreadIds));
+        long cpuNanos = -1L;
+        if (THREAD_CPU_TIME_ENABLED) {
+            cpuNanos = 0L;
+            for (final long threadId : workerThreadIds) {
+                cpuNanos += Math.max(0L, THREAD_MX_BEAN.getThreadCpuTime(threadId));
+            }
+        }
+        long gcPauses = 0L;
+        long gcPauseMillis = 0L;
+        for (final GarbageCollectorMXBean gcMXBean : PAUSE_GC_MX_BEANS) {
+            // Both are -1 if undefined for this collector
+            gcPauses += Math.max(0L, gcMXBean.getCollectionCount());
+            gcPauseMillis += Math.max(0L, gcMXBean.getCollectionTime());
+        }
+        // The user time from ThreadMXBean is only as precise as the clock tick, whereas the total CPU time is
+        // precise, so their difference is no measure of the system time: read both from the same /proc file
+        final List<File> workerThreadDirs = ProcStat.threadDirs(WORKER_THREAD_NAME_PREFIX,
+                CARRIER_THREAD_NAME_PREFIX);
+        final ProcStat workerProcStat = workerThreadDirs == null ? null : ProcStat.readThreads(workerThreadDirs);
+        final ProcIo workerProcIo = workerThreadDirs == null ? null : ProcIo.readThreads(workerThreadDirs);
+        final ProcStat procStat = beforePass ? ProcStat.read() : procStatAfterPass;
+        return new ResourceUsage(allocatedBytes, cpuNanos, workerProcStat == null ? -1L : workerProcStat.userNanos,
+                workerProcStat == null ? -1L : workerProcStat.systemNanos,
+                procStat == null ? -1L : procStat.userNanos, procStat == null ? -1L : procStat.systemNanos,
+                workerProcStat == null ? -1L : workerProcStat.minorFaults,
+                workerProcStat == null ? -1L : workerProcStat.majorFaults,
+                workerProcIo == null ? -1L : workerProcIo.readSyscalls,
+                workerProcIo == null ? -1L : workerProcIo.storageReadBytes, gcPauses, gcPauseMillis);
+    }
+
+    /**
+     * Get the difference between two values of a counter that may be unknown.
+     *
+     * @param after
+     *            The later value, or -1 if unknown.
+     * @param before
+     *            The earlier value, or -1 if unknown.
+     * @return The difference, or -1 if either value is unknown.
+     */
+    private static long delta(final long after, final long before) {
+        return after < 0L || before < 0L ? -1L : Math.max(0L, after - before);
+    }
+
+    /**
+     * Get the resources used since an earlier sample.
+     *
+     * @param before
+     *            The earlier sample.
+     * @return The difference between this sample and the earlier sample.
+     */
+    public ResourceUsage since(final ResourceUsage before) {
+        return new ResourceUsage(delta(allocatedBytes, before.allocatedBytes), delta(cpuNanos, before.cpuNanos),
+                delta(userCpuNanos, before.userCpuNanos), delta(systemCpuNanos, before.systemCpuNanos),
+                delta(processUserNanos, before.processUserNanos),
+                delta(processSystemNanos, before.processSystemNanos), delta(minorFaults, before.minorFaults),
+                delta(majorFaults, before.majorFaults), delta(readSyscalls, before.readSyscalls),
+                delta(storageReadBytes, before.storageReadBytes), gcPauses - before.gcPauses,
+                gcPauseMillis - before.gcPauseMillis);
+    }
+}
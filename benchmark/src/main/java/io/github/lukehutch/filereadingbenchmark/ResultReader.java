@@ -0,0 +1,242 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Reads the records written by {@link ResultWriter}. */
+public final class ResultReader {
+    private ResultReader() {
+    }
+
+    /**
+     * Read a results file. Files ending in {@code .json} or {@code .jsonl} are read as JSON lines, and all other
+     * files are read as CSV.
+     *
+     * @param file
+     *            The results file.
+     * @return The records, with field values as strings, keyed by column name.
+     * @throws IOException
+     *             If the file could not be read or parsed.
+     */
+    public static List<Map<String, String>> read(final File file) throws IOException {
+        final List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        final String name = file.getName();
+        return name.endsWith(".json") || name.endsWith(".jsonl") ? readJsonLines(file, lines)
+                : readCsv(file, lines);
+    }
+
+    private static List<Map<String, String>> readCsv(final File file, final List<String> lines) throws IOException {
+        final List<Map<String, String>> records = new ArrayList<>();
+        List<String> header = null;
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).isEmpty()) {
+                continue;
+            }
+            final int lineNum = i + 1;
+            String line = lines.get(i);
+            // A quoted field may contain line breaks -- join lines until the quotes are balanced
+            while (hasUnbalancedQuotes(line) && i + 1 < lines.size()) {
+                line += "\n" + lines.get(++i);
+            }
+            final List<String> fields = parseCsvLine(file, lineNum, line);
+            if (header == null) {
+                header = fields;
+            } else {
+                final Map<String, String> record = new LinkedHashMap<>();
+                for (int j = 0; j < header.size() && j < fields.size(); j++) {
+                    if (!fields.get(j).isEmpty()) {
+                        record.put(header.get(j), fields.get(j));
+                    }
+                }
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /** Check whether a CSV line ends inside a quoted field (escaped quotes come in pairs, so count them all). */
+    private static boolean hasUnbalancedQuotes(final String line) {
+        boolean inQuotes = false;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') {
+                inQuotes = !inQuotes;
+            }
+        }
+        return inQuotes;
+    }
+
+    private static List<String> parseCsvLine(final File file, final int lineNum, final String line)
+            throws IOException {
+        final List<String> fields = new ArrayList<>();
+        final StringBuilder field = new StringBuilder();
+        boolean inQuotes = false;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (inQuotes) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (inQuotes) {
+            throw new IOException(file + ":" + lineNum + ": unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static List<Map<String, String>> readJsonLines(final File file, final List<String> lines)
+            throws IOException {
+        final List<Map<String, String>> records = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            final String line = lines.get(i).trim();
+            if (!line.isEmpty()) {
+                records.add(new JsonObjectParser(file, i + 1, line).parse());
+            }
+        }
+        return records;
+    }
+
+    /** Parses a flat JSON object whose values are strings or numbers, as written by {@link ResultWriter}. */
+    private static class JsonObjectParser {
+        private final File file;
+        private final int lineNum;
+        private final String json;
+        private int pos;
+
+        JsonObjectParser(final File file, final int lineNum, final String json) {
+            this.file = file;
+            this.lineNum = lineNum;
+            this.json = json;
+        }
+
+        Map<String, String> parse() throws IOException {
+            final Map<String, String> record = new LinkedHashMap<>();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return record;
+            }
+            for (;;) {
+                skipWhitespace();
+                final String key = parseString();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                record.put(key, peek() == '"' ? parseString() : parseLiteral());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect('}');
+                    return record;
+                }
+            }
+        }
+
+        private String parseString() throws IOException {
+            expect('"');
+            final StringBuilder buf = new StringBuilder();
+            for (char c; (c = next()) != '"';) {
+                if (c == '\\') {
+                    final char escaped = next();
+                    switch (escaped) {
+                    case 'n':
+                        buf.append('\n');
+                        break;
+                    case 'r':
+                        buf.append('\r');
+                        break;
+                    case 't':
+                        buf.append('\t');
+                        break;
+                    case 'b':
+                        buf.append('\b');
+                        break;
+                    case 'f':
+                        buf.append('\f');
+                        break;
+                    case 'u':
+                        if (pos + 4 > json.length()) {
+                            throw error("truncated unicode escape");
+                        }
+                        try {
+                            buf.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                        } catch (final NumberFormatException e) {
+                            throw error("invalid unicode escape");
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        buf.append(escaped);
+                    }
+                } else {
+                    buf.append(c);
+                }
+            }
+            return buf.toString();
+        }
+
+        private String parseLiteral() throws IOException {
+            final int start = pos;
+            while (pos < json.length() && ",}".indexOf(json.charAt(pos)) < 0
+                    && !Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+            if (pos == start) {
+                throw error("expected a value");
+            }
+            return json.substring(start, pos);
+        }
+
+        private void skipWhitespace() {
+            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private char peek() throws IOException {
+            if (pos >= json.length()) {
+                throw error("unexpected end of line");
+            }
+            return json.charAt(pos);
+        }
+
+        private char next() throws IOException {
+            final char c = peek();
+            pos++;
+            return c;
+        }
+
+        private void expect(final char c) throws IOException {
+            if (next() != c) {
+                throw error("expected '" + c + "'");
+            }
+        }
+
+        private IOException error(final String message) {
+            return new IOException(file + ":" + lineNum + ":" + pos + ": " + message);
+        }
+    }
+}
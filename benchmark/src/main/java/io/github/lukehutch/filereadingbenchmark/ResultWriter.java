@@ -0,0 +1,183 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/** Writes benchmark results to a file as machine-readable records, one record per measured pass. */
+public abstract class ResultWriter implements Closeable {
+    /** The fields of each record, in column order. */
+    public static final List<String> COLUMNS = Collections.unmodifiableList(Arrays.asList( //
+            "strategy", "engine", "threads", "fileSize", "numFiles", "sizes", "cache", "trial", "wallNanos", //
+            "bytesRead", //
+            "latencyP50Nanos", "latencyP99Nanos", "latencyP999Nanos", "latencyMaxNanos", //
+            "allocatedBytes", "gcPauses", "gcPauseMillis", //
+            "cpuNanos", "userCpuNanos", "systemCpuNanos", "processUserNanos", "processSystemNanos", //
+            "minorFaults", "majorFaults", "readSyscalls", "storageReadBytes", //
+            "jdk", "cores", "os", "fsType"));
+
+    /** The writer. */
+    protected final Writer writer;
+
+    /**
+     * Constructor.
+     *
+     * @param file
+     *            The file to write to. Overwritten if it already exists.
+     * @throws IOException
+     *             If the file could not be opened.
+     */
+    protected ResultWriter(final File file) throws IOException {
+        this.writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Open a CSV file, and write the header row.
+     *
+     * @param file
+     *            The file to write to. Overwritten if it already exists.
+     * @return The {@link ResultWriter}.
+     * @throws IOException
+     *             If the file could not be opened.
+     */
+    public static ResultWriter csv(final File file) throws IOException {
+        return new CsvResultWriter(file);
+    }
+
+    /**
+     * Open a JSON lines file, with one JSON object per line.
+     *
+     * @param file
+     *            The file to write to. Overwritten if it already exists.
+     * @return The {@link ResultWriter}.
+     * @throws IOException
+     *             If the file could not be opened.
+     */
+    public static ResultWriter jsonLines(final File file) throws IOException {
+        return new JsonLinesResultWriter(file);
+    }
+
+    /**
+     * Write a record. Fields that are missing from the record are written as empty (CSV) or omitted (JSON).
+     *
+     * @param record
+     *            The field values, keyed by column name. Number values are written unquoted.
+     * @throws IOException
+     *             If the record could not be written.
+     */
+    public abstract void write(Map<String, Object> record) throws IOException;
+
+    /**
+     * Flush the records written so far to the file, so that partial results survive a crash.
+     *
+     * @throws IOException
+     *             If the records could not be flushed.
+     */
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /** Writes records as comma-separated values, with a header row. */
+    private static class CsvResultWriter extends ResultWriter {
+        CsvResultWriter(final File file) throws IOException {
+            super(file);
+            writer.write(String.join(",", COLUMNS));
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(final Map<String, Object> record) throws IOException {
+            for (int i = 0; i < COLUMNS.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                final Object value = record.get(COLUMNS.get(i));
+                if (value != null) {
+                    writer.write(quote(value.toString()));
+                }
+            }
+            writer.write('\n');
+        }
+
+        /** Quote a CSV field, if it contains a comma, a quote or a line break. */
+        private static String quote(final String field) {
+            if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0
+                    && field.indexOf('\r') < 0) {
+                return field;
+            }
+            return '"' + field.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    /** Writes each record as a JSON object on its own line. */
+    private static class JsonLinesResultWriter extends ResultWriter {
+        JsonLinesResultWriter(final File file) throws IOException {
+            super(file);
+        }
+
+        @Override
+        public void write(final Map<String, Object> record) throws IOException {
+            final StringBuilder buf = new StringBuilder("{");
+            for (final String column : COLUMNS) {
+                final Object value = record.get(column);
+                if (value != null) {
+                    if (buf.length() > 1) {
+                        buf.append(',');
+                    }
+                    appendString(column, buf);
+                    buf.append(':');
+                    if (value instanceof Number) {
+                        buf.append(value);
+                    } else {
+                        appendString(value.toString(), buf);
+                    }
+                }
+            }
+            writer.write(buf.append("}\n").toString());
+        }
+
+        /** Append a string as a JSON string literal. */
+        private static void appendString(final String str, final StringBuilder buf) {
+            buf.append('"');
+            for (int i = 0; i < str.length(); i++) {
+                final char c = str.charAt(i);
+                switch (c) {
+                case '"':
+                    buf.append("\\\"");
+                    break;
+                case '\\':
+                    buf.append("\\\\");
+                    break;
+                case '\n':
+                    buf.append("\\n");
+                    break;
+                case '\r':
+                    buf.append("\\r");
+                    break;
+                case '\t':
+                    buf.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        buf.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        buf.append(c);
+                    }
+                }
+            }
+            buf.append('"');
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The distribution of the file sizes of a dataset. Each distribution has a fixed shape, which is scaled so that the
+ * sizes of the files add up to the total size of the dataset, so that every step of the sweep reads the same
+ * number of bytes, whatever the distribution. The sizes are drawn from a fixed seed for each number of files, so
+ * every run (and every fixture) with the same parameters has the same file sizes, in the same order.
+ */
+public enum SizeDistribution {
+    /** Every file has the same size. */
+    UNIFORM("uniform") {
+        @Override
+        double sample(final SplittableRandom random) {
+            return 1.0;
+        }
+    },
+
+    /**
+     * Log-normal, with a standard deviation of 1.5 in log space: two thirds of the files are within a factor of 4.5
+     * of the median size, and the largest files are a few hundred times the median.
+     */
+    LOG_NORMAL("lognormal") {
+        @Override
+        double sample(final SplittableRandom random) {
+            return Math.exp(1.5 * random.nextGaussian());
+        }
+    },
+
+    /**
+     * Pareto, with a shape of 1.2: most files are small, and a small fraction of the files holds most of the bytes.
+     */
+    PARETO("pareto") {
+        @Override
+        double sample(final SplittableRandom random) {
+            return Math.pow(1.0 - random.nextDouble(), -1.0 / 1.2);
+        }
+    },
+
+    /**
+     * Like the classfiles on a typical classpath, before scaling: 85% of the files are between 1KB and 4KB, and the
+     * rest form a long tail, Pareto-distributed from 4KB with a shape of 1.5.
+     */
+    CLASSFILE("classfile") {
+        @Override
+        double sample(final SplittableRandom random) {
+            return random.nextDouble() < 0.85 ? 1024.0 + 3072.0 * random.nextDouble()
+                    : 4096.0 * Math.pow(1.0 - random.nextDouble(), -1.0 / 1.5);
+        }
+    };
+
+    /** The maximum size of a file, since the read strategies read each file into an array or buffer. */
+    static final int MAX_FILE_SIZE = Integer.MAX_VALUE - 8;
+
+    /** The seed of the file sizes, which is combined with the number of files. */
+    private static final long SEED = 0x5eed_f11e_512e_5L;
+
+    /** The name of the distribution, as given on the command line and in the results. */
+    private final String label;
+
+    SizeDistribution(final String label) {
+        this.label = label;
+    }
+
+    /**
+     * Draw the unscaled size of a file.
+     *
+     * @param random
+     *            The random number generator.
+     * @return The unscaled size, which is positive.
+     */
+    abstract double sample(SplittableRandom random);
+
+    /**
+     * Get the name of the distribution.
+     *
+     * @return The name of the distribution, as given on the command line and in the results.
+     */
+    public String label() {
+        return label;
+    }
+
+    /**
+     * Get a distribution by name.
+     *
+     * @param label
+     *            The name of the distribution.
+     * @return The distribution.
+     * @throws IllegalArgumentException
+     *             If there is no distribution with the given name.
+     */
+    public static SizeDistribution forLabel(final String label) {
+        for (final SizeDistribution distribution : values()) {
+            if (distribution.label.equals(label)) {
+                return distribution;
+            }
+        }
+        throw new IllegalArgumentException("Unknown size distribution: " + label);
+    }
+
+    /**
+     * Get the mean file size of a dataset, rounded up, which is also the size of each file for {@link #UNIFORM}.
+     *
+     * @param numFiles
+     *            The number of files.
+     * @param totalBytes
+     *            The total size of the files.
+     * @return The mean file size.
+     */
+    public static int meanFileSize(final int numFiles, final long totalBytes) {
+        return (int) ((totalBytes + numFiles - 1) / numFiles);
+    }
+
+    /**
+     * Draw the file sizes of a dataset, scaled to add up to its total size. Each size is rounded so that the
+     * rounding errors do not accumulate. Files that would be larger than {@link #MAX_FILE_SIZE} are limited to that
+     * size, and the other files are scaled up to hold the excess, so the sizes still add up to the total size.
+     * Sizes of zero are possible, if the mean file size is small, and the distribution is wide.
+     *
+     * @param numFiles
+     *            The number of files.
+     * @param totalBytes
+     *            The total size of the files.
+     * @return The size of each file.
+     * @throws IllegalArgumentException
+     *             If the mean file size, rounded up, is larger than {@link #MAX_FILE_SIZE}.
+     */
+    public int[] fileSizes(final int numFiles, final long totalBytes) {
+        if ((totalBytes + numFiles - 1) / numFiles > MAX_FILE_SIZE) {
+            throw new IllegalArgumentException("Files must be smaller than 2GB");
+        }
+        final int[] fileSizes = new int[numFiles];
+        if (this == UNIFORM) {
+            // Round up, as for the fixed-size datasets of earlier versions, so that their results stay comparable
+            Arrays.fill(fileSizes, meanFileSize(numFiles, totalBytes));
+            return fileSizes;
+        }
+        final SplittableRandom random = new SplittableRandom(SEED + numFiles);
+        final double[] unscaledSizes = new double[numFiles];
+        double unscaledTotal = 0.0;
+        for (int i = 0; i < numFiles; i++) {
+            unscaledSizes[i] = sample(random);
+            unscaledTotal += unscaledSizes[i];
+        }
+        // Limit the largest files, and rescale the rest to hold the excess, until no more files are over the limit.
+        // A file is limited if its scaled size is over MAX_FILE_SIZE - 1, so that rounding cannot take the size of
+        // an unlimited file over the limit.
+        final boolean[] isLimited = new boolean[numFiles];
+        long unlimitedBytes = totalBytes;
+        double scale = unlimitedBytes / unscaledTotal;
+        for (boolean limitedMore = true; limitedMore;) {
+            limitedMore = false;
+            for (int i = 0; i < numFiles; i++) {
+                if (!isLimited[i] && unscaledSizes[i] * scale > MAX_FILE_SIZE - 1) {
+                    isLimited[i] = true;
+                    unlimitedBytes -= MAX_FILE_SIZE;
+                    limitedMore = true;
+                }
+            }
+            if (limitedMore) {
+                // Sum in the same order as below, so that the last unlimited file ends exactly at unlimitedBytes
+                unscaledTotal = 0.0;
+                for (int i = 0; i < numFiles; i++) {
+                    if (!isLimited[i]) {
+                        unscaledTotal += unscaledSizes[i];
+                    }
+                }
+                scale = Math.max(0L, unlimitedBytes) / unscaledTotal;
+            }
+        }
+        double unscaledEnd = 0.0;
+        long prevEnd = 0L;
+        for (int i = 0; i < numFiles; i++) {
+            if (isLimited[i]) {
+                fileSizes[i] = MAX_FILE_SIZE;
+            } else {
+                unscaledEnd += unscaledSizes[i];
+                final long end = Math.round(unscaledEnd * scale);
+                fileSizes[i] = (int) (end - prevEnd);
+                prevEnd = end;
+            }
+        }
+        return fileSizes;
+    }
+}
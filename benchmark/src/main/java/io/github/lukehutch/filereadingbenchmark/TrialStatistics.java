@@ -0,0 +1,158 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import java.util.Arrays;
+
+/** Summary statistics of the measured trials of a benchmark cell. */
+public class TrialStatistics {
+    /** The number of samples. */
+    public final int count;
+
+    /** The mean. */
+    public final double mean;
+
+    /** The sample standard deviation, or 0 if there is only one sample. */
+    public final double stddev;
+
+    /** The minimum. */
+    public final double min;
+
+    /** The median. */
+    public final double p50;
+
+    /** The 95th percentile. */
+    public final double p95;
+
+    /**
+     * Compute the statistics of a set of samples.
+     *
+     * @param samples
+     *            The samples. Must not be empty.
+     */
+    public TrialStatistics(final double[] samples) {
+        if (samples.length == 0) {
+            throw new IllegalArgumentException("No samples");
+        }
+        final double[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        count = sorted.length;
+        double sum = 0.0;
+        for (final double sample : sorted) {
+            sum += sample;
+        }
+        mean = sum / count;
+        double sumSquaredDeviations = 0.0;
+        for (final double sample : sorted) {
+            sumSquaredDeviations += (sample - mean) * (sample - mean);
+        }
+        stddev = count > 1 ? Math.sqrt(sumSquaredDeviations / (count - 1)) : 0.0;
+        min = sorted[0];
+        p50 = percentile(sorted, 50.0);
+        p95 = percentile(sorted, 95.0);
+    }
+
+    /**
+     * Compute the two-sided p-value of Welch's unequal-variances t-test for the difference between the means of two
+     * sets of samples.
+     *
+     * @param a
+     *            The statistics of the first set of samples.
+     * @param b
+     *            The statistics of the second set of samples.
+     * @return The p-value, or {@link Double#NaN} if either set has fewer than two samples.
+     */
+    public static double welchTTestPValue(final TrialStatistics a, final TrialStatistics b) {
+        if (a.count < 2 || b.count < 2) {
+            return Double.NaN;
+        }
+        final double varA = a.stddev * a.stddev / a.count;
+        final double varB = b.stddev * b.stddev / b.count;
+        final double stdErr = Math.sqrt(varA + varB);
+        if (stdErr == 0.0) {
+            // No variance -- the means are either identical or certainly different
+            return a.mean == b.mean ? 1.0 : 0.0;
+        }
+        final double t = (a.mean - b.mean) / stdErr;
+        // Welch-Satterthwaite degrees of freedom
+        final double df = (varA + varB) * (varA + varB)
+                / (varA * varA / (a.count - 1) + varB * varB / (b.count - 1));
+        // Two-sided tail probability of Student's t distribution
+        return regularizedIncompleteBeta(df / (df + t * t), df / 2.0, 0.5);
+    }
+
+    /**
+     * The regularized incomplete beta function I_x(a, b), evaluated with a continued fraction (Numerical Recipes,
+     * 2nd ed., section 6.4).
+     */
+    private static double regularizedIncompleteBeta(final double x, final double a, final double b) {
+        if (x <= 0.0) {
+            return 0.0;
+        } else if (x >= 1.0) {
+            return 1.0;
+        }
+        final double front = Math.exp(logGamma(a + b) - logGamma(a) - logGamma(b) + a * Math.log(x)
+                + b * Math.log(1.0 - x));
+        // The continued fraction converges fastest for x < (a + 1) / (a + b + 2)
+        return x < (a + 1.0) / (a + b + 2.0) ? front * betaContinuedFraction(x, a, b) / a
+                : 1.0 - front * betaContinuedFraction(1.0 - x, b, a) / b;
+    }
+
+    /** Evaluate the continued fraction of the incomplete beta function, using the modified Lentz method. */
+    private static double betaContinuedFraction(final double x, final double a, final double b) {
+        final double tiny = 1e-300;
+        double c = 1.0;
+        double d = 1.0 - (a + b) * x / (a + 1.0);
+        d = 1.0 / (Math.abs(d) < tiny ? tiny : d);
+        double h = d;
+        for (int m = 1; m <= 300; m++) {
+            final int m2 = 2 * m;
+            // Even step
+            double aa = m * (b - m) * x / ((a + m2 - 1.0) * (a + m2));
+            d = 1.0 + aa * d;
+            d = 1.0 / (Math.abs(d) < tiny ? tiny : d);
+            c = 1.0 + aa / c;
+            c = Math.abs(c) < tiny ? tiny : c;
+            h *= d * c;
+            // Odd step
+            aa = -(a + m) * (a + b + m) * x / ((a + m2) * (a + m2 + 1.0));
+            d = 1.0 + aa * d;
+            d = 1.0 / (Math.abs(d) < tiny ? tiny : d);
+            c = 1.0 + aa / c;
+            c = Math.abs(c) < tiny ? tiny : c;
+            final double delta = d * c;
+            h *= delta;
+            if (Math.abs(delta - 1.0) < 1e-12) {
+                break;
+            }
+        }
+        return h;
+    }
+
+    /** The natural log of the gamma function, using the Lanczos approximation. */
+    private static double logGamma(final double x) {
+        final double[] coeffs = { 76.18009172947146, -86.50532032941677, 24.01409824083091, -1.231739572450155,
+                0.1208650973866179e-2, -0.5395239384953e-5 };
+        double y = x;
+        final double tmp = x + 5.5 - (x + 0.5) * Math.log(x + 5.5);
+        double series = 1.000000000190015;
+        for (final double coeff : coeffs) {
+            series += coeff / ++y;
+        }
+        return -tmp + Math.log(2.5066282746310005 * series / x);
+    }
+
+    /**
+     * Get a percentile of a sorted array of samples, interpolating linearly between the closest ranks.
+     *
+     * @param sorted
+     *            The samples, in ascending order.
+     * @param percentile
+     *            The percentile, between 0 and 100.
+     * @return The value at the percentile.
+     */
+    static double percentile(final double[] sorted, final double percentile) {
+        final double rank = percentile / 100.0 * (sorted.length - 1);
+        final int lower = (int) Math.floor(rank);
+        final int upper = (int) Math.ceil(rank);
+        return sorted[lower] + (rank - lower) * (sorted[upper] - sorted[lower]);
+    }
+}
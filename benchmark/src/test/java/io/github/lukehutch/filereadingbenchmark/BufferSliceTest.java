@@ -0,0 +1,53 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+/** Checks that {@link BufferSlice} only exposes the bytes between its offset and its end. */
+class BufferSliceTest {
+    private static final byte[] ARRAY = { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+
+    @Test
+    void offsetAndLength() {
+        final BufferSlice slice = new BufferSlice(ARRAY, 3, 4);
+        assertSame(ARRAY, slice.array());
+        assertEquals(3, slice.offset());
+        assertEquals(4, slice.length());
+        final byte[] bytes = slice.toByteArray();
+        assertNotSame(ARRAY, bytes);
+        assertArrayEquals(new byte[] { 3, 4, 5, 6 }, bytes);
+    }
+
+    @Test
+    void asByteBuffer() {
+        final ByteBuffer buffer = new BufferSlice(ARRAY, 3, 4).asByteBuffer();
+        // Positions in the view start from the offset of the slice
+        assertEquals(0, buffer.position());
+        assertEquals(4, buffer.limit());
+        assertEquals(4, buffer.capacity());
+        assertEquals(3, buffer.get(0));
+        assertEquals(6, buffer.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(4));
+    }
+
+    @Test
+    void wholeArrayIsNotCopied() {
+        assertSame(ARRAY, new BufferSlice(ARRAY, 0, ARRAY.length).toByteArray());
+        assertEquals(0, new BufferSlice(ARRAY, ARRAY.length, 0).toByteArray().length);
+    }
+
+    @Test
+    void outOfBounds() {
+        assertThrows(IndexOutOfBoundsException.class, () -> new BufferSlice(ARRAY, -1, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> new BufferSlice(ARRAY, 2, -1));
+        assertThrows(IndexOutOfBoundsException.class, () -> new BufferSlice(ARRAY, 8, 3));
+        assertThrows(IndexOutOfBoundsException.class, () -> new BufferSlice(ARRAY, Integer.MAX_VALUE, 1));
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link InputStreamReadStrategy#readAllBytes(InputStream, long, boolean)} with size hints that are right,
+ * too small (as if the file grew after its size was read) and too large (as if it shrank).
+ */
+class InputStreamReadStrategyTest {
+    private static byte[] randomBytes(final int length) {
+        final byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    /** An input stream that returns at most a few bytes per read, like a slow pipe or socket. */
+    private static InputStream shortReads(final byte[] contents) {
+        return new ByteArrayInputStream(contents) {
+            @Override
+            public synchronized int read(final byte[] b, final int off, final int len) {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+    }
+
+    private static BufferSlice read(final byte[] contents, final long fileSizeHint, final boolean sizeHintIsExact)
+            throws IOException {
+        final BufferSlice slice = InputStreamReadStrategy.readAllBytes(new ByteArrayInputStream(contents),
+                fileSizeHint, sizeHintIsExact);
+        assertArrayEquals(contents, slice.toByteArray());
+        // Short reads must give the same result
+        assertArrayEquals(contents,
+                InputStreamReadStrategy.readAllBytes(shortReads(contents), fileSizeHint, sizeHintIsExact)
+                        .toByteArray());
+        return slice;
+    }
+
+    @Test
+    void emptyFile() throws IOException {
+        for (final boolean sizeHintIsExact : new boolean[] { false, true }) {
+            assertEquals(0, read(new byte[0], 0L, sizeHintIsExact).length());
+            assertEquals(0, read(new byte[0], -1L, sizeHintIsExact).length());
+        }
+    }
+
+    @Test
+    void exactHint() throws IOException {
+        final byte[] contents = randomBytes(100_000);
+        // The one-byte probe finds the end of the stream, so the buffer is neither grown nor trimmed
+        final BufferSlice exactSlice = read(contents, contents.length, true);
+        assertEquals(contents.length, exactSlice.array().length);
+        assertEquals(contents.length, exactSlice.length());
+        assertEquals(contents.length, read(contents, contents.length, false).length());
+    }
+
+    @Test
+    void hintTooSmall() throws IOException {
+        final byte[] contents = randomBytes(100_000);
+        for (final boolean sizeHintIsExact : new boolean[] { false, true }) {
+            // The probed byte must be kept when the buffer is grown
+            assertEquals(contents.length, read(contents, contents.length - 1, sizeHintIsExact).length());
+            assertEquals(contents.length, read(contents, 10, sizeHintIsExact).length());
+        }
+        // An unknown size starts from the default buffer size
+        assertEquals(contents.length, read(contents, -1L, false).length());
+    }
+
+    @Test
+    void hintTooLarge() throws IOException {
+        final byte[] contents = randomBytes(100_000);
+        for (final boolean sizeHintIsExact : new boolean[] { false, true }) {
+            final BufferSlice slice = read(contents, contents.length + 1, sizeHintIsExact);
+            assertEquals(contents.length, slice.length());
+            assertEquals(contents.length + 1, slice.array().length);
+            assertEquals(contents.length, read(contents, 3 * contents.length, sizeHintIsExact).length());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that {@link LatencyHistogram} percentiles are within the stated error of about 1.6% (1/64) of the exact
+ * percentiles, and that its stripes are merged without losing counts.
+ */
+class LatencyHistogramTest {
+    private static final double[] PERCENTILES = { 0.0, 1.0, 10.0, 50.0, 90.0, 99.0, 99.9, 100.0 };
+
+    /** Get the exact value at a percentile, with the same rank as {@link LatencyHistogram.Snapshot}. */
+    private static long referenceValueAtPercentile(final long[] sortedValues, final double percentile) {
+        final long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * sortedValues.length));
+        return sortedValues[(int) rank - 1];
+    }
+
+    private static void assertWithinError(final long expected, final long actual, final String message) {
+        // Percentiles are reported as the highest value in the bucket, so they may only be too high
+        assertTrue(actual >= expected, message + ": " + actual + " < " + expected);
+        assertTrue(actual - expected <= expected / 64, message + ": " + actual + " is not within 1/64 of "
+                + expected);
+    }
+
+    /** Record values from one thread per stripe. */
+    private static void recordFromThreads(final LatencyHistogram histogram, final long[] values,
+            final int numThreads) throws InterruptedException {
+        final Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            final int firstIndex = t;
+            threads[t] = new Thread(() -> {
+                for (int i = firstIndex; i < values.length; i += numThreads) {
+                    histogram.record(values[i]);
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private static long[] randomLatencies(final int numValues, final long seed) {
+        final Random random = new Random(seed);
+        final long[] values = new long[numValues];
+        for (int i = 0; i < numValues; i++) {
+            // Log-normal, with a median of 100us and a long tail
+            values[i] = (long) Math.exp(Math.log(100_000.0) + 1.5 * random.nextGaussian());
+        }
+        return values;
+    }
+
+    @Test
+    void bucketBoundaries() {
+        // Values below 128 are exact; above that, buckets are 2, 4, 8, ... wide, doubling at each power of two
+        final long[][] valuesAndBucketTops = { { 0, 0 }, { 1, 1 }, { 127, 127 }, { 128, 129 }, { 129, 129 },
+                { 130, 131 }, { 254, 255 }, { 255, 255 }, { 256, 259 }, { 259, 259 }, { 260, 263 },
+                { (1L << 20) - 1, (1L << 20) - 1 }, { 1L << 20, (1L << 20) + (1L << 14) - 1 },
+                { (1L << 40) - 1, (1L << 40) - 1 } };
+        for (final long[] valueAndBucketTop : valuesAndBucketTops) {
+            final LatencyHistogram histogram = new LatencyHistogram(1);
+            histogram.record(valueAndBucketTop[0]);
+            histogram.record(valueAndBucketTop[0]);
+            // A larger value, so that the lower percentiles are not capped at the maximum value
+            histogram.record(1L << 40);
+            final long bucketTop = histogram.snapshot().valueAtPercentile(50.0);
+            assertEquals(valueAndBucketTop[1], bucketTop, "bucket of " + valueAndBucketTop[0]);
+            assertWithinError(valueAndBucketTop[0], bucketTop, "bucket of " + valueAndBucketTop[0]);
+        }
+    }
+
+    @Test
+    void percentilesMatchSortedReference() {
+        final long[] values = randomLatencies(100_000, 1L);
+        final LatencyHistogram histogram = new LatencyHistogram(1);
+        for (final long value : values) {
+            histogram.record(value);
+        }
+        final long[] sortedValues = values.clone();
+        Arrays.sort(sortedValues);
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(values.length, snapshot.totalCount());
+        for (final double percentile : PERCENTILES) {
+            assertWithinError(referenceValueAtPercentile(sortedValues, percentile),
+                    snapshot.valueAtPercentile(percentile), "p" + percentile);
+        }
+    }
+
+    @Test
+    void maxValue() {
+        final LatencyHistogram histogram = new LatencyHistogram(1);
+        assertEquals(0L, histogram.snapshot().maxValue());
+        assertEquals(0L, histogram.snapshot().valueAtPercentile(50.0));
+        histogram.record(1_000_003L);
+        // The maximum is exact, and caps the top of its bucket
+        assertEquals(1_000_003L, histogram.snapshot().maxValue());
+        assertEquals(1_000_003L, histogram.snapshot().valueAtPercentile(100.0));
+        // Values beyond the highest bucket still have an exact maximum
+        histogram.record(1L << 50);
+        assertEquals(1L << 50, histogram.snapshot().maxValue());
+        assertEquals((1L << 40) - 1, histogram.snapshot().valueAtPercentile(100.0));
+        histogram.reset();
+        assertEquals(0L, histogram.snapshot().maxValue());
+        assertEquals(0L, histogram.snapshot().totalCount());
+    }
+
+    @Test
+    void stripesAreMerged() throws InterruptedException {
+        final long[] values = randomLatencies(80_000, 2L);
+        final LatencyHistogram singleStripe = new LatencyHistogram(1);
+        for (final long value : values) {
+            singleStripe.record(value);
+        }
+        final LatencyHistogram.Snapshot expected = singleStripe.snapshot();
+        // Threads with colliding ids share a stripe, so use both more and fewer threads than stripes
+        for (final int numThreads : new int[] { 3, 8, 13 }) {
+            final LatencyHistogram striped = new LatencyHistogram(8);
+            recordFromThreads(striped, values, numThreads);
+            final LatencyHistogram.Snapshot snapshot = striped.snapshot();
+            assertEquals(expected.totalCount(), snapshot.totalCount());
+            assertEquals(expected.maxValue(), snapshot.maxValue());
+            for (final double percentile : PERCENTILES) {
+                assertEquals(expected.valueAtPercentile(percentile), snapshot.valueAtPercentile(percentile),
+                        numThreads + " threads, p" + percentile);
+            }
+        }
+    }
+
+    @Test
+    void snapshotsAreAdded() {
+        final long[] values = randomLatencies(10_000, 3L);
+        final LatencyHistogram all = new LatencyHistogram(1);
+        final LatencyHistogram firstHalf = new LatencyHistogram(1);
+        final LatencyHistogram secondHalf = new LatencyHistogram(1);
+        for (int i = 0; i < values.length; i++) {
+            all.record(values[i]);
+            (i < values.length / 2 ? firstHalf : secondHalf).record(values[i]);
+        }
+        final LatencyHistogram.Snapshot expected = all.snapshot();
+        final LatencyHistogram.Snapshot sum = firstHalf.snapshot();
+        sum.add(secondHalf.snapshot());
+        assertEquals(expected.totalCount(), sum.totalCount());
+        assertEquals(expected.maxValue(), sum.maxValue());
+        for (final double percentile : PERCENTILES) {
+            assertEquals(expected.valueAtPercentile(percentile), sum.valueAtPercentile(percentile));
+        }
+    }
+}
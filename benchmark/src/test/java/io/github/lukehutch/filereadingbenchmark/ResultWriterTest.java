@@ -0,0 +1,71 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Checks that the records written by {@link ResultWriter} are read back unchanged by {@link ResultReader}. */
+class ResultWriterTest {
+    @TempDir
+    Path tempDir;
+
+    private static List<Map<String, Object>> records() {
+        final Map<String, Object> first = new LinkedHashMap<>();
+        first.put("strategy", "InputStream");
+        first.put("engine", "4b");
+        first.put("threads", 4);
+        first.put("fileSize", 1024);
+        first.put("trial", 0);
+        first.put("wallNanos", 123456789L);
+        // Characters that must be quoted or escaped
+        first.put("os", "Linux, \"quoted\"\tname\\path");
+        first.put("jdk", "line\nbreak \u00e9");
+        final Map<String, Object> second = new LinkedHashMap<>();
+        // Missing fields are left out of the record that is read back
+        second.put("strategy", "Cleanup");
+        second.put("wallNanos", -1L);
+        return Arrays.asList(first, second);
+    }
+
+    private void checkRoundTrip(final File file, final ResultWriter writer) throws IOException {
+        final List<Map<String, Object>> records = records();
+        try (ResultWriter w = writer) {
+            for (final Map<String, Object> record : records) {
+                w.write(record);
+            }
+        }
+        final List<Map<String, String>> readRecords = ResultReader.read(file);
+        assertEquals(records.size(), readRecords.size());
+        for (int i = 0; i < records.size(); i++) {
+            final Map<String, String> expected = new LinkedHashMap<>();
+            for (final String column : ResultWriter.COLUMNS) {
+                final Object value = records.get(i).get(column);
+                if (value != null) {
+                    expected.put(column, value.toString());
+                }
+            }
+            assertEquals(expected, readRecords.get(i));
+        }
+    }
+
+    @Test
+    void csvRoundTrip() throws IOException {
+        final File file = tempDir.resolve("results.csv").toFile();
+        checkRoundTrip(file, ResultWriter.csv(file));
+    }
+
+    @Test
+    void jsonLinesRoundTrip() throws IOException {
+        final File file = tempDir.resolve("results.jsonl").toFile();
+        checkRoundTrip(file, ResultWriter.jsonLines(file));
+    }
+}
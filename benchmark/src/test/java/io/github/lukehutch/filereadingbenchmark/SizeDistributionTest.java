@@ -0,0 +1,55 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/** Checks that the file sizes of {@link SizeDistribution} add up to the total size, within the size limit. */
+class SizeDistributionTest {
+    private static long sum(final int[] fileSizes) {
+        long sum = 0L;
+        for (final int fileSize : fileSizes) {
+            sum += fileSize;
+        }
+        return sum;
+    }
+
+    private static int max(final int[] fileSizes) {
+        int max = 0;
+        for (final int fileSize : fileSizes) {
+            max = Math.max(max, fileSize);
+        }
+        return max;
+    }
+
+    @Test
+    void sizesAddUpToTotal() {
+        for (final SizeDistribution distribution : SizeDistribution.values()) {
+            if (distribution != SizeDistribution.UNIFORM) {
+                assertEquals(100_000_000L, sum(distribution.fileSizes(1000, 100_000_000L)));
+                assertEquals(1_234_567L, sum(distribution.fileSizes(100, 1_234_567L)));
+            }
+        }
+        // Uniform sizes are rounded up
+        assertEquals(1000 * 100_001L, sum(SizeDistribution.UNIFORM.fileSizes(1000, 100_000_001L)));
+    }
+
+    @Test
+    void largeFilesAreLimitedWithoutLosingBytes() {
+        // With a mean of 1GB, the largest files of the skewed distributions would be far over the limit
+        final long totalBytes = 100L << 30;
+        for (final SizeDistribution distribution : SizeDistribution.values()) {
+            final int[] fileSizes = distribution.fileSizes(100, totalBytes);
+            assertEquals(totalBytes, sum(fileSizes));
+            assertTrue(max(fileSizes) <= SizeDistribution.MAX_FILE_SIZE);
+        }
+        assertEquals(SizeDistribution.MAX_FILE_SIZE, max(SizeDistribution.PARETO.fileSizes(100, totalBytes)));
+    }
+
+    @Test
+    void meanOverLimitIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> SizeDistribution.PARETO.fileSizes(3, 100L << 30));
+    }
+}
@@ -0,0 +1,42 @@
+package io.github.lukehutch.filereadingbenchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/** Checks {@link TrialStatistics} against known values. */
+class TrialStatisticsTest {
+    private static TrialStatistics stats(final double... samples) {
+        return new TrialStatistics(samples);
+    }
+
+    @Test
+    void summaryStatistics() {
+        final TrialStatistics stats = stats(5, 1, 4, 2, 3);
+        assertEquals(5, stats.count);
+        assertEquals(3.0, stats.mean, 1e-12);
+        assertEquals(Math.sqrt(2.5), stats.stddev, 1e-12);
+        assertEquals(1.0, stats.min, 1e-12);
+        assertEquals(3.0, stats.p50, 1e-12);
+    }
+
+    @Test
+    void welchTTestPValue() {
+        // t = -2, with 8 degrees of freedom
+        assertEquals(0.08052, TrialStatistics.welchTTestPValue(stats(1, 2, 3, 4, 5), stats(3, 4, 5, 6, 7)), 1e-5);
+        // Unequal variances and sample sizes: t = -2.7136, with 6.595 degrees of freedom
+        assertEquals(0.03182, TrialStatistics.welchTTestPValue(stats(10, 11, 12, 13), stats(11, 13, 15, 17, 19, 21)),
+                1e-5);
+        // The test is symmetric
+        assertEquals(TrialStatistics.welchTTestPValue(stats(1, 2, 3, 4, 5), stats(3, 4, 5, 6, 7)),
+                TrialStatistics.welchTTestPValue(stats(3, 4, 5, 6, 7), stats(1, 2, 3, 4, 5)), 1e-12);
+    }
+
+    @Test
+    void welchTTestPValueEdgeCases() {
+        assertEquals(1.0, TrialStatistics.welchTTestPValue(stats(2, 2, 2), stats(2, 2)), 0.0);
+        assertEquals(0.0, TrialStatistics.welchTTestPValue(stats(2, 2, 2), stats(3, 3)), 0.0);
+        assertTrue(Double.isNaN(TrialStatistics.welchTTestPValue(stats(1), stats(1, 2, 3))));
+    }
+}
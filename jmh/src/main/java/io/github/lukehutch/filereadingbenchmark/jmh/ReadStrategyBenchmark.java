@@ -0,0 +1,130 @@
+package io.github.lukehutch.filereadingbenchmark.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.github.lukehutch.filereadingbenchmark.Dataset;
+import io.github.lukehutch.filereadingbenchmark.ReadStrategies;
+import io.github.lukehutch.filereadingbenchmark.ReadStrategy;
+
+/**
+ * Reads a dataset of {@code numFiles} files of {@code fileSize} bytes each, using the named {@link ReadStrategy},
+ * with one task per file on a thread pool of {@code threads} threads. Each invocation reads the whole dataset.
+ * Every byte of every file is folded into a checksum that is passed to the {@link Blackhole}, so that a strategy
+ * cannot skip any of the work of reading the contents.
+ *
+ * <p>
+ * The strategy names must match {@link ReadStrategy#name()}. To benchmark a strategy that is not listed in the
+ * {@code strategy} parameter, pass its name with {@code -p strategy=<name>}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+public class ReadStrategyBenchmark {
+    /** The name of the read strategy. */
+    @Param({ "InputStream", "InputStreamExact", "InputStreamSlice", "FileChannel", "DirectBuffer" })
+    public String strategy;
+
+    /** The size of each file. */
+    @Param({ "1024", "16384", "102400" })
+    public int fileSize;
+
+    /** The number of files. */
+    @Param({ "1000" })
+    public int numFiles;
+
+    /** The number of threads in the thread pool. */
+    @Param({ "1", "4" })
+    public int threads;
+
+    private ReadStrategy readStrategy;
+    private Dataset dataset;
+    private List<File> files;
+    private ExecutorService threadPool;
+
+    @Setup(Level.Trial)
+    public void createDataset() throws IOException {
+        readStrategy = ReadStrategies.byName(strategy);
+        dataset = Dataset.create(numFiles, fileSize);
+        files = dataset.files();
+        threadPool = Executors.newFixedThreadPool(threads);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpStrategy() throws IOException {
+        readStrategy.setUp();
+    }
+
+    /**
+     * Fold every byte of a buffer into a checksum.
+     *
+     * @param contents
+     *            The buffer, from its position to its limit.
+     * @return The checksum.
+     */
+    private static long checksum(final ByteBuffer contents) {
+        long checksum = 0L;
+        int i = contents.position();
+        for (final int end = contents.limit(); i <= end - 8; i += 8) {
+            checksum = 31L * checksum + contents.getLong(i);
+        }
+        for (final int end = contents.limit(); i < end; i++) {
+            checksum = 31L * checksum + contents.get(i);
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public void readAll(final Blackhole blackhole) throws InterruptedException, ExecutionException {
+        final List<Future<Long>> futures = new ArrayList<>(files.size());
+        for (final File file : files) {
+            futures.add(threadPool.submit(() -> {
+                // Consume the contents on the worker thread, since a Blackhole must not be shared across threads
+                final long[] checksum = new long[1];
+                final int bytesRead = readStrategy.read(file, contents -> checksum[0] = checksum(contents));
+                return checksum[0] + bytesRead;
+            }));
+        }
+        for (final Future<Long> future : futures) {
+            blackhole.consume(future.get().longValue());
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownStrategy() throws IOException {
+        readStrategy.tearDown();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDataset() throws InterruptedException {
+        threadPool.shutdown();
+        threadPool.awaitTermination(5000, TimeUnit.MILLISECONDS);
+        dataset.close();
+    }
+}